@@ -0,0 +1,265 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * A benchmark for decoding large images at the sizes the viewer and the creator draw them at.
+ *
+ * For the viewer's box of 450x450 pixels and the thumbnail size of 100 pixels, it compares reading the full image
+ * with ImageIO.read and scaling it down, which is how images used to be decoded, against reading it with class ImageDecoder,
+ * which skips the pixels that are not needed, and scaling it down. It reports the median decode time, the bytes allocated
+ * by the decoding thread, and the peak heap in use during a decode.
+ *
+ * Without an argument, it measures a generated JPEG image of SOURCE_WIDTH x SOURCE_HEIGHT pixels (40 megapixels),
+ * written to the temporary directory. An image file given as argument is measured instead.
+ *
+ * Run with: java -cp .:ecs100.jar DecodeBenchmark [image file] [runs]
+ *
+ * With the argument 'show', it plays SHOW_SLIDES slides of the generated image (copied once per slide, so that every slide
+ * has to be decoded) for SHOW_SLIDE_MILLIS each, as the viewer does, once starting cold and once starting warm
+ * (see 'setWarmStart' in class SlideshowViewer). It reports the time until the first slide is shown,
+ * and how often and how long the show waited for a slide to be decoded afterwards.
+ *
+ * @version 17 October 2026
+ */
+public class DecodeBenchmark {
+
+    // the size of the generated source image
+    private static final int SOURCE_WIDTH = 7296;
+    private static final int SOURCE_HEIGHT = 5472;
+
+    // the box sizes measured: the viewer's image and a thumbnail
+    private static final int[] BOX_SIZES = {SlideshowViewer.IMAGE_SIZE, ThumbnailStore.THUMBNAIL_SIZE};
+
+    // the number of slides of the show and the time each one is shown
+    private static final int SHOW_SLIDES = 24;
+    private static final long SHOW_SLIDE_MILLIS = 500;
+
+    // a slide that takes longer than this to fetch counts as a stall
+    private static final long STALL_MILLIS = 5;
+
+    private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("show")) {
+            compareShow();
+            return;
+        }
+
+        File source = args.length > 0 ? new File(args[0]) : generateSource();
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        int[] sourceSize = sizeOf(source);
+        if (sourceSize == null) {
+            System.err.println("cannot decode " + source);
+            System.exit(1);
+        }
+        System.out.printf("source: %s, %dx%d pixels, %.1f MB%n", source, sourceSize[0], sourceSize[1], source.length() / 1e6);
+
+        System.out.println("box\tdecoder\tsubsampling\tmedian ms\tallocated MB\tpeak heap MB");
+        for (int size : BOX_SIZES) {
+            measure(source, size, false, 1, runs);
+            measure(source, size, true, ImageDecoder.subsampling(sourceSize[0], sourceSize[1], size, size), runs);
+        }
+    }
+
+    /**
+     * Decodes the source image for a box of the given size several times, and prints the statistics.
+     *
+     * @param subsampled whether the image is read with ImageDecoder rather than ImageIO.read
+     * @param factor the subsampling factor that is used, for the report
+     */
+    private static void measure(File source, int size, boolean subsampled, int factor, int runs) throws IOException {
+        long[] nanos = new long[runs];
+        long allocated = 0;
+        long peak = 0;
+
+        // one untimed decode lets the JIT compiler settle
+        decode(source, size, subsampled);
+
+        for (int run = 0; run < runs; run++) {
+            long base = resetPeakHeap();
+            long allocatedStart = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            long start = System.nanoTime();
+            decode(source, size, subsampled);
+            nanos[run] = System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedStart;
+            peak = Math.max(peak, peakHeap() - base);
+        }
+
+        Arrays.sort(nanos);
+        System.out.printf("%dx%d\t%s\t%d\t%.1f\t%.1f\t%.1f%n", size, size, subsampled ? "ImageDecoder" : "ImageIO.read", factor,
+                          nanos[runs / 2] / 1e6, allocated / 1e6 / runs, peak / 1e6);
+    }
+
+    /**
+     * Decodes the source image and scales it to a box of the given size, as the image cache does.
+     */
+    private static BufferedImage decode(File source, int size, boolean subsampled) throws IOException {
+        BufferedImage image = subsampled ? ImageDecoder.read(source, size, size) : ImageIO.read(source);
+
+        BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, size, size, null);
+        g.dispose();
+        return scaled;
+    }
+
+    /**
+     * Plays a show of distinct large images starting cold and starting warm, and prints the stalls of both.
+     */
+    private static void compareShow() throws Exception {
+        File source = generateSource();
+        File directory = Files.createTempDirectory("decode-benchmark-show").toFile();
+        Images images = new Images();
+        for (int i = 0; i < SHOW_SLIDES; i++) {
+            File slide = new File(directory, "slide" + i + ".jpg");
+            Files.copy(source.toPath(), slide.toPath());
+            images.addImageAfter(slide.getPath());
+        }
+
+        System.out.printf("%d slides of %s, %d ms each, %d cores%n", SHOW_SLIDES, source.getName(), SHOW_SLIDE_MILLIS,
+                          Runtime.getRuntime().availableProcessors());
+        System.out.println("start\tfirst slide ms\tstalls\tstalled ms\tlongest stall ms");
+        playShow(images, false);
+        playShow(images, true);
+    }
+
+    /**
+     * Plays a show over the images with a fresh cache and prefetcher, as the viewer does, and prints its stalls.
+     */
+    private static void playShow(Images images, boolean warm) throws Exception {
+        Prefetcher prefetcher = new Prefetcher(new ImageCache(), SlideshowViewer.IMAGE_SIZE, SlideshowViewer.IMAGE_SIZE,
+                                               Prefetcher.DEFAULT_LOOKAHEAD);
+        long start = System.nanoTime();
+
+        if (warm) {
+            List<String> fileNames = new ArrayList<String>();
+            for (int i = 0; i < images.count(); i++) {
+                fileNames.add(images.getImageFileNameAt(i));
+            }
+            List<Future<?>> decodes = prefetcher.prefetchAll(fileNames, null);
+            for (int i = 0; i < Math.min(decodes.size(), prefetcher.getLookahead() + 1); i++) {
+                decodes.get(i).get();
+            }
+        }
+
+        long firstSlideNanos = 0;
+        int stalls = 0;
+        long stalledNanos = 0;
+        long longestStallNanos = 0;
+        for (int slide = 0; slide < images.count(); slide++) {
+            long fetchStart = System.nanoTime();
+            prefetcher.fetch(images.getImageFileNameAt(slide));
+            long fetchNanos = System.nanoTime() - fetchStart;
+            prefetcher.prefetchAround(images, slide);
+
+            if (slide == 0) {
+                firstSlideNanos = System.nanoTime() - start;
+            } else if (fetchNanos > STALL_MILLIS * 1000000) {
+                stalls++;
+                stalledNanos += fetchNanos;
+                longestStallNanos = Math.max(longestStallNanos, fetchNanos);
+            }
+            Thread.sleep(Math.max(0, SHOW_SLIDE_MILLIS - fetchNanos / 1000000));
+        }
+
+        System.out.printf("%s\t%.0f\t%d\t%.0f\t%.0f%n", warm ? "warm" : "cold", firstSlideNanos / 1e6, stalls,
+                          stalledNanos / 1e6, longestStallNanos / 1e6);
+    }
+
+    /**
+     * Returns the width and height of an image from its header, or null if there is no reader for its format.
+     */
+    private static int[] sizeOf(File file) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(file);
+        if (input == null)
+            return null;
+
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext())
+                return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new int[] {reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Collects garbage and resets the peak usage of the heap, and returns the heap in use afterwards.
+     */
+    private static long resetPeakHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Returns the peak heap in use since the last reset, summed over the heap's memory pools.
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /**
+     * Writes a JPEG image of SOURCE_WIDTH x SOURCE_HEIGHT pixels with gradients and noise, like a photograph, to a temporary file.
+     */
+    private static File generateSource() throws IOException {
+        File file = new File(System.getProperty("java.io.tmpdir"), "decode-benchmark-" + SOURCE_WIDTH + "x" + SOURCE_HEIGHT + ".jpg");
+        if (file.isFile())
+            return file;
+
+        BufferedImage image = new BufferedImage(SOURCE_WIDTH, SOURCE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(1);
+        for (int y = 0; y < SOURCE_HEIGHT; y++) {
+            for (int x = 0; x < SOURCE_WIDTH; x++) {
+                int red = x * 255 / SOURCE_WIDTH;
+                int green = y * 255 / SOURCE_HEIGHT;
+                int blue = 128 + random.nextInt(64) - 32 + (int) (64 * Math.sin((x + y) / 40.0));
+                image.setRGB(x, y, (red << 16) | (green << 8) | Math.max(0, Math.min(255, blue)));
+            }
+        }
+
+        File partial = new File(file.getPath() + ".part");
+        if (!ImageIO.write(image, "jpg", partial) || !partial.renameTo(file))
+            throw new IOException("cannot write " + file);
+        return file;
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class DirectoryTable holds one copy of every directory that image file names are in.
+ *
+ * Image nodes store the directory of their image as a reference into this table and only the name within
+ * the directory of their own (see class ImageNode). As a list typically holds many images per directory,
+ * the directory part of the file names is stored once instead of once per image.
+ *
+ * The table is shared by all lists and may be used from several threads. It only grows: directories are
+ * kept for the lifetime of the program, which is fine as there are far fewer directories than images.
+ *
+ * @version 17 October 2026
+ */
+public class DirectoryTable {
+
+    // the directories, each one mapped to itself
+    private static final ConcurrentHashMap<String, String> directories = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Returns the shared copy of a directory, adding the directory to the table if it is new.
+     *
+     * @param directory the directory including its trailing separator, or "" for file names without a directory
+     */
+    public static String intern(String directory) {
+        String shared = directories.putIfAbsent(directory, directory);
+        return shared == null ? directory : shared;
+    }
+
+    /**
+     * Returns the length of the directory part of a file name, i.e., the position after its last separator.
+     *
+     * Both '/' and '\' count as separators, so that file names of any platform are split in the same way.
+     */
+    public static int directoryLength(String fileName) {
+        return Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1;
+    }
+
+    /**
+     * Returns the number of directories in the table.
+     */
+    public static int size() {
+        return directories.size();
+    }
+}
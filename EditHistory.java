@@ -0,0 +1,513 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class EditHistory records the changes made to an image list, so that they can be undone and redone.
+ *
+ * Changes are not recorded as copies of the list. Each change is recorded as an edit that knows how to reverse itself:
+ * added images are cut out again, and removed images are kept as a list of their own (see 'cut' in class Images),
+ * whose nodes are inserted again as they are. Cutting and inserting take O(log n) time and no copying, so every edit
+ * takes O(1) space apart from the images it removed, and undoing or redoing an edit takes O(log n) time.
+ * Removed images keep the orientation the list had when they were cut, so inserting them again stays O(log n)
+ * unless the list has been reversed meanwhile (see 'reverseImages' in class Images).
+ *
+ * The cursor position before and after every edit is recorded and restored as well.
+ *
+ * The history is bounded: only the most recent edits are kept, so the removed images it keeps alive are bounded, too.
+ * Recording a new edit discards the edits that could be redone.
+ *
+ * Changes that the user did not make, e.g., of a watched folder, are not edits: they cannot be undone, they do not count
+ * against the limit, and they neither discard the edits that could be redone nor move the cursor. They are kept after
+ * the edit they followed, described by the file names they added and removed. Undoing or redoing an edit takes back
+ * the changes made after it first, in O(log n) time each, so that the edit finds the list as it left it, and makes
+ * them again afterwards, in O(n) time each, as they would have been made on the list without the edit.
+ * E.g., undoing the removal of an image whose file has been deleted meanwhile does not bring the image back.
+ * These changes are bounded by the same limit as the edits: when more are kept, the oldest edits are forgotten
+ * together with the changes that only they needed, and if that is not enough, all edits are forgotten.
+ * So undoing or redoing an edit never makes more than 'limit' of them again.
+ *
+ * A history is not thread-safe: all of its methods are called from one thread at a time (see class SlideshowCreator).
+ *
+ * @version 17 October 2026
+ */
+public class EditHistory {
+
+    // the number of edits kept, if nothing else is configured
+    public static final int DEFAULT_LIMIT = 100;
+
+    /**
+     * A change of the image list that can be reversed and made again.
+     */
+    private interface Edit {
+        void undo(Images images);
+        void redo(Images images);
+    }
+
+    // the list that the edits change
+    private final Images images;
+
+    // the maximum number of edits kept
+    private final int limit;
+
+    // the edits that can be undone and redone, the most recent first
+    private final Deque<Recorded> undoable = new ArrayDeque<Recorded>();
+    private final Deque<Recorded> redoable = new ArrayDeque<Recorded>();
+
+    // the changes the user did not make that followed the state before the oldest edit that can be undone
+    private List<External> initialExternals = new ArrayList<External>();
+
+    /**
+     * Creates an edit history with the default limit.
+     *
+     * @param images the list whose changes are recorded
+     */
+    public EditHistory(Images images) {
+        this(images, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Creates an edit history.
+     *
+     * @param images the list whose changes are recorded
+     * @param limit the maximum number of edits kept
+     */
+    public EditHistory(Images images, int limit) {
+        this.images = images;
+        this.limit = Math.max(1, limit);
+    }
+
+    /**
+     * Records that images have been added.
+     *
+     * @param position the position of the first added image
+     * @param count the number of added images
+     * @param cursorBefore the position of the cursor before the images were added
+     */
+    public void added(int position, int count, int cursorBefore) {
+        if (count > 0)
+            record(new Insertion(position, count), cursorBefore);
+    }
+
+    /**
+     * Removes images and records it.
+     *
+     * @param from the position of the first image to remove
+     * @param to the position after the last image to remove
+     */
+    public void remove(int from, int to) {
+        int cursorBefore = images.indexOfCursor();
+        Removal removal = new Removal(from, to);
+        removal.redo(images);
+        if (removal.removed.count() > 0)
+            record(removal, cursorBefore);
+    }
+
+    /**
+     * Makes a change that the user did not make, without recording it as an edit: removes the images in some files
+     * or directories wherever they are in the list, and adds images at the end.
+     *
+     * For directories whose current images are all known, e.g., after they have been listed again, only the differences
+     * are applied: their images in the list that are not among the added images are removed, and the added images
+     * that are in the list already are not added again.
+     *
+     * @param added the file names of the images to add
+     * @param fileNames the file names of the images to remove
+     * @param directories directories whose images, including the images in their subdirectories, are removed as well;
+     *                    each one including its trailing separator
+     * @param listedDirectories directories whose images, including the images in their subdirectories, are all among
+     *                          the added images; each one including its trailing separator
+     */
+    public void external(List<String> added, Set<String> fileNames, Collection<String> directories,
+                         Collection<String> listedDirectories) {
+        External external = new External(added, fileNames, directories, listedDirectories);
+        external.make(images);
+
+        // the change has to be taken back only to undo or redo an edit
+        if (undoable.isEmpty() && redoable.isEmpty())
+            initialExternals.clear();
+        else {
+            externalsAfterNewest().add(external);
+            limitExternals();
+        }
+    }
+
+    /**
+     * Moves images before the image at a target position and records it (see 'moveRange' in class Images).
+     * Nothing is recorded if the images are not moved, e.g., because they are at the target already.
+     *
+     * @param from the position of the first image to move
+     * @param to the position after the last image to move
+     * @param target the position of the image that the moved images come before
+     */
+    public void move(int from, int to, int target) {
+        int cursorBefore = images.indexOfCursor();
+        if (images.moveRange(from, to, target))
+            record(new Move(from, to, target), cursorBefore);
+    }
+
+    /**
+     * Reverses the list and records it.
+     */
+    public void reverse() {
+        int cursorBefore = images.indexOfCursor();
+        images.reverseImages();
+        record(new Reversal(), cursorBefore);
+    }
+
+    /**
+     * Replaces all images with the images of another list and records it. The other list is left empty.
+     *
+     * @param replacement the list whose images replace the images of the list
+     */
+    public void replaceAll(Images replacement) {
+        int cursorBefore = images.indexOfCursor();
+        int cursorAfter = replacement.indexOfCursor();
+        Removal removal = new Removal(0, images.count());
+        removal.redo(images);
+        int added = replacement.count();
+        images.insertAt(0, replacement);
+        images.moveCursorTo(cursorAfter);
+        record(new Composite(removal, new Insertion(0, added)), cursorBefore);
+    }
+
+    /**
+     * Undoes the most recent edit, if any.
+     *
+     * @return true, if an edit was undone
+     */
+    public boolean undo() {
+        Recorded recorded = undoable.pollFirst();
+        if (recorded == null)
+            return false;
+
+        takeBack(recorded.externals);
+        recorded.edit.undo(images);
+        images.moveCursorTo(recorded.cursorBefore);
+        makeAgain(recorded.externals, externalsAfterNewest());
+        recorded.externals.clear();
+
+        redoable.addFirst(recorded);
+        return true;
+    }
+
+    /**
+     * Redoes the most recently undone edit, if any.
+     *
+     * @return true, if an edit was redone
+     */
+    public boolean redo() {
+        Recorded recorded = redoable.pollFirst();
+        if (recorded == null)
+            return false;
+
+        // the changes made since the edit was undone
+        List<External> previous = externalsAfterNewest();
+        List<External> later = previous.subList(recorded.externalsBefore, previous.size());
+
+        takeBack(later);
+        recorded.edit.redo(images);
+        images.moveCursorTo(recorded.cursorAfter);
+        makeAgain(later, recorded.externals);
+        later.clear();
+
+        undoable.addFirst(recorded);
+        return true;
+    }
+
+    /**
+     * Forgets all edits, e.g., after the list the user starts with has been loaded.
+     */
+    public void clear() {
+        undoable.clear();
+        redoable.clear();
+        initialExternals.clear();
+    }
+
+    /**
+     * Returns the number of edits that can be undone.
+     */
+    public int getUndoCount() {
+        return undoable.size();
+    }
+
+    /**
+     * Returns the number of edits that can be redone.
+     */
+    public int getRedoCount() {
+        return redoable.size();
+    }
+
+    /**
+     * Records an edit that has just been made, discarding the oldest edit if the limit is reached.
+     */
+    private void record(Edit edit, int cursorBefore) {
+        redoable.clear();
+        undoable.addFirst(new Recorded(edit, cursorBefore, images.indexOfCursor(), externalsAfterNewest().size()));
+        if (undoable.size() > limit)
+            initialExternals = undoable.removeLast().externals;
+    }
+
+    /**
+     * Forgets the oldest edits while more than 'limit' changes the user did not make are kept.
+     *
+     * Forgetting the oldest edit forgets the changes that followed the state before it. Once no edit can be undone,
+     * the remaining changes are only needed to redo edits, so these are forgotten as well.
+     */
+    private void limitExternals() {
+        while (externalCount() > limit) {
+            if (undoable.isEmpty()) {
+                clear();
+                return;
+            }
+            initialExternals = undoable.removeLast().externals;
+        }
+    }
+
+    /**
+     * Returns the number of changes the user did not make that are kept.
+     */
+    private int externalCount() {
+        int count = initialExternals.size();
+        for (Recorded recorded : undoable) {
+            count += recorded.externals.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the changes the user did not make since the most recent edit that can be undone, or since the state
+     * before the oldest edit if there is none.
+     */
+    private List<External> externalsAfterNewest() {
+        return undoable.isEmpty() ? initialExternals : undoable.peekFirst().externals;
+    }
+
+    /**
+     * Takes back changes the user did not make, the most recent first.
+     */
+    private void takeBack(List<External> externals) {
+        for (int i = externals.size() - 1; i >= 0; i--) {
+            externals.get(i).takeBack(images);
+        }
+    }
+
+    /**
+     * Makes changes the user did not make again, in their order, and adds them to another list of changes.
+     */
+    private void makeAgain(List<External> externals, List<External> made) {
+        for (External external : externals) {
+            external.make(images);
+            made.add(external);
+        }
+    }
+
+    /**
+     * An edit together with the cursor positions before and after it, and the changes the user did not make after it.
+     */
+    private static class Recorded {
+        final Edit edit;
+        final int cursorBefore;
+        final int cursorAfter;
+
+        // the number of changes the user did not make that preceded the edit since the previous edit
+        final int externalsBefore;
+
+        // the changes the user did not make after the edit
+        final List<External> externals = new ArrayList<External>();
+
+        Recorded(Edit edit, int cursorBefore, int cursorAfter, int externalsBefore) {
+            this.edit = edit;
+            this.cursorBefore = cursorBefore;
+            this.cursorAfter = cursorAfter;
+            this.externalsBefore = externalsBefore;
+        }
+    }
+
+    /**
+     * A change that the user did not make: removing the images in some files and directories and adding images at the end.
+     * It is described by file names rather than positions, so that it can be made again on a list that has changed.
+     */
+    private static class External {
+        private final List<String> added;
+        private final Set<String> fileNames;
+        private final Collection<String> directories;
+        private final Collection<String> listedDirectories;
+
+        // the change as it was made last, to take it back
+        private Edit made;
+
+        External(List<String> added, Set<String> fileNames, Collection<String> directories, Collection<String> listedDirectories) {
+            this.added = added;
+            this.fileNames = fileNames;
+            this.directories = directories;
+            this.listedDirectories = listedDirectories;
+        }
+
+        /**
+         * Makes the change. The images are found and removed while the write lock of the list is held,
+         * so no other change can shift their positions in between (see 'rangesOf' and 'getWriteLock' in class Images).
+         */
+        void make(Images images) {
+            made = null;
+
+            images.getWriteLock().lock();
+            try {
+                // the images of the listed directories that are no longer there are removed, the others are kept
+                Set<String> removed = fileNames;
+                List<String> adding = added;
+                if (!listedDirectories.isEmpty()) {
+                    Set<String> listed = images.fileNamesIn(listedDirectories);
+                    removed = new HashSet<String>(fileNames);
+                    removed.addAll(listed);
+                    removed.removeAll(added);
+                    adding = new ArrayList<String>();
+                    for (String fileName : added) {
+                        if (!listed.contains(fileName))
+                            adding.add(fileName);
+                    }
+                }
+
+                if (!removed.isEmpty() || !directories.isEmpty()) {
+                    List<int[]> ranges = images.rangesOf(removed, directories);
+
+                    // the ranges are removed from the last one on, so that the positions of the others stay valid
+                    for (int i = ranges.size() - 1; i >= 0; i--) {
+                        Removal removal = new Removal(ranges.get(i)[0], ranges.get(i)[1]);
+                        removal.redo(images);
+                        made = made == null ? removal : new Composite(made, removal);
+                    }
+                }
+
+                int countBefore = images.count();
+                images.appendAll(adding);
+                if (images.count() > countBefore) {
+                    Insertion insertion = new Insertion(countBefore, images.count() - countBefore);
+                    made = made == null ? insertion : new Composite(made, insertion);
+                }
+            } finally {
+                images.getWriteLock().unlock();
+            }
+        }
+
+        /**
+         * Takes the change back, while the list is as the change left it.
+         */
+        void takeBack(Images images) {
+            if (made != null)
+                made.undo(images);
+            made = null;
+        }
+    }
+
+    /**
+     * Adding images at a position. Undoing cuts them out and keeps them, redoing inserts them again.
+     */
+    private static class Insertion implements Edit {
+        private final int position;
+        private final int count;
+        private Images added;
+
+        Insertion(int position, int count) {
+            this.position = position;
+            this.count = count;
+        }
+
+        public void undo(Images images) {
+            added = images.cut(position, position + count);
+        }
+
+        public void redo(Images images) {
+            images.insertAt(position, added);
+            added = null;
+        }
+    }
+
+    /**
+     * Removing the images in a range of positions. Redoing cuts them out and keeps them, undoing inserts them again.
+     */
+    private static class Removal implements Edit {
+        private final int from;
+        private final int to;
+        private Images removed;
+
+        Removal(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public void undo(Images images) {
+            images.insertAt(from, removed);
+            removed = null;
+        }
+
+        public void redo(Images images) {
+            removed = images.cut(from, to);
+        }
+    }
+
+    /**
+     * Moving the images in a range of positions before the image at a target position.
+     */
+    private static class Move implements Edit {
+        private final int from;
+        private final int to;
+        private final int target;
+
+        Move(int from, int to, int target) {
+            this.from = from;
+            this.to = to;
+            this.target = target;
+        }
+
+        public void undo(Images images) {
+            // the images are now at 'moved'; they go back before the image that followed them originally
+            int moved = target <= from ? target : target - (to - from);
+            images.moveRange(moved, moved + (to - from), from < moved ? from : to);
+        }
+
+        public void redo(Images images) {
+            images.moveRange(from, to, target);
+        }
+    }
+
+    /**
+     * Reversing the list, which is its own reverse.
+     */
+    private static class Reversal implements Edit {
+        public void undo(Images images) {
+            images.reverseImages();
+        }
+
+        public void redo(Images images) {
+            images.reverseImages();
+        }
+    }
+
+    /**
+     * Two edits made one after the other, undone in the opposite order.
+     */
+    private static class Composite implements Edit {
+        private final Edit first;
+        private final Edit second;
+
+        Composite(Edit first, Edit second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        public void undo(Images images) {
+            second.undo(images);
+            first.undo(images);
+        }
+
+        public void redo(Images images) {
+            first.redo(images);
+            second.redo(images);
+        }
+    }
+}
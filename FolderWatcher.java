@@ -0,0 +1,297 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class FolderWatcher follows the changes of a directory tree after it has been scanned, so that the image list can be
+ * kept up to date with a folder that another program keeps filling, without scanning it again.
+ *
+ * The directories of the tree are watched with a WatchService on a background thread. Its events are not passed on one
+ * by one: they are collected until no new event has arrived for the debounce time, and then passed on as one batch
+ * of added and removed files. Within a batch, events for the same file are coalesced, e.g., a file that is created
+ * and deleted again is not reported at all, and a file that is still being written is reported once it is quiet.
+ * A batch is passed on after MAX_DELAY_FACTOR times the debounce time at the latest, even if events keep arriving.
+ *
+ * Added files are reported only if they are images (see 'isImage' in class ImageScanner), removed files whether they were
+ * images or not. New subdirectories are watched, too, and the images already in them are reported as added.
+ * Hidden files and directories are ignored, as by the scanner.
+ *
+ * If the watch service loses events because too many arrive at once, the affected directory tree is listed again
+ * and reported as relisted: all images now in it are reported as added, including the ones reported before,
+ * so the listener compares them with what it has, i.e., it drops the added images it has already and the ones it has
+ * in that tree that are not among the added images.
+ *
+ * @version 17 October 2026
+ */
+public class FolderWatcher {
+
+    /**
+     * Receives the batches of changes.
+     */
+    public interface Listener {
+
+        /**
+         * Called with every batch of changes, from the watching thread.
+         *
+         * @param added the file names of the added images, in the order of their names
+         * @param removed the file names of the removed files
+         * @param removedDirectories the removed directories, each one including its trailing separator;
+         *                           the files in them count as removed as well
+         * @param relistedDirectories the directories whose events were lost, each one including its trailing separator;
+         *                            all images in them and their subdirectories are among the added images
+         */
+        void changed(List<String> added, Set<String> removed, Set<String> removedDirectories, Set<String> relistedDirectories);
+    }
+
+    // the time to wait for more events before a batch is passed on, if nothing else is configured
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    // a batch is passed on after this many debounce times at the latest
+    public static final int MAX_DELAY_FACTOR = 10;
+
+    // checks whether added files are images
+    private final ImageScanner scanner;
+
+    // receives the batches
+    private final Listener listener;
+
+    // the time to wait for more events before a batch is passed on
+    private final long debounceMillis;
+
+    // the watched directories, by their watch key
+    private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+    // the changes of the current batch, by absolute path
+    private final Set<Path> added = new LinkedHashSet<Path>();
+    private final Set<Path> removed = new LinkedHashSet<Path>();
+    private final Set<Path> removedDirectories = new LinkedHashSet<Path>();
+    private final Set<Path> relistedDirectories = new LinkedHashSet<Path>();
+
+    private WatchService service;
+
+    /**
+     * Creates a folder watcher.
+     *
+     * @param scanner checks whether added files are images
+     * @param debounceMillis the time to wait for more events before a batch is passed on
+     * @param listener receives the batches of changes
+     */
+    public FolderWatcher(ImageScanner scanner, long debounceMillis, Listener listener) {
+        this.scanner = scanner;
+        this.debounceMillis = Math.max(1, debounceMillis);
+        this.listener = listener;
+    }
+
+    /**
+     * Starts watching a directory tree on a background thread.
+     *
+     * @param root the directory to watch, together with its subdirectories
+     * @throws IOException if the directory cannot be watched
+     * @throws IllegalStateException if the watcher has been started already
+     */
+    public synchronized void start(Path root) throws IOException {
+        if (service != null)
+            throw new IllegalStateException("the watcher has been started already");
+
+        service = FileSystems.getDefault().newWatchService();
+        registerTree(root.toAbsolutePath(), false);
+
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                watch();
+            }
+        }, "folder-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching. The changes of an unfinished batch are dropped.
+     */
+    public synchronized void stop() {
+        if (service == null)
+            return;
+
+        try {
+            service.close();
+        } catch (IOException e) {
+            // the watching thread ends either way
+        }
+    }
+
+    /**
+     * Collects events into batches and passes them on until the watcher is stopped.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                // wait for the first event of a batch as long as it takes
+                collect(service.take());
+
+                // then wait until it is quiet for the debounce time, but not longer than the maximum delay
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis * MAX_DELAY_FACTOR);
+                WatchKey key;
+                while ((key = service.poll(Math.min(debounceMillis, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())),
+                                           TimeUnit.MILLISECONDS)) != null) {
+                    collect(key);
+                }
+
+                passOn();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds the events of a watch key to the current batch.
+     */
+    private void collect(WatchKey key) {
+        Path directory = directories.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null)
+                continue;
+
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relist(directory);
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+            if (path.getFileName().toString().startsWith("."))
+                continue;
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+                    registerTree(path, true);
+                else
+                    fileCreated(path);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                if (directories.containsValue(path))
+                    removedDirectories.add(path);
+                else if (!added.remove(path))
+                    removed.add(path);
+            }
+            // modifications only delay the batch, so that files are reported once they have been written
+        }
+
+        // a key that is no longer valid belongs to a deleted directory
+        if (!key.reset())
+            directories.remove(key);
+    }
+
+    /**
+     * Lists a directory tree whose events were lost again, unless it is part of a tree listed again in the current batch already.
+     */
+    private void relist(Path directory) {
+        for (Path relisted : relistedDirectories) {
+            if (directory.startsWith(relisted))
+                return;
+        }
+
+        relistedDirectories.add(directory);
+        registerTree(directory, true);
+    }
+
+    /**
+     * Adds a created file to the current batch, unless it replaces a file that was removed in the same batch.
+     */
+    private void fileCreated(Path file) {
+        if (!removed.remove(file))
+            added.add(file);
+    }
+
+    /**
+     * Watches a directory and its subdirectories.
+     *
+     * @param root the top directory
+     * @param addFiles whether the files in the directories are added to the current batch, as for a new directory
+     */
+    private void registerTree(Path root, final boolean addFiles) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                    if (directory.getFileName() != null && directory.getFileName().toString().startsWith(".") && !directory.equals(root))
+                        return FileVisitResult.SKIP_SUBTREE;
+
+                    WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                                                      StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    directories.put(key, directory);
+                    removedDirectories.remove(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (addFiles && attributes.isRegularFile() && !file.getFileName().toString().startsWith("."))
+                        fileCreated(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // a directory that cannot be read is not watched
+        }
+    }
+
+    /**
+     * Passes the current batch on, if it contains any changes, and starts a new batch.
+     */
+    private void passOn() {
+        List<Path> candidates = new ArrayList<Path>(added);
+        Collections.sort(candidates);
+
+        List<String> images = new ArrayList<String>();
+        for (Path file : candidates) {
+            if (scanner.isImage(file))
+                images.add(file.toString());
+        }
+
+        Set<String> removedFiles = new LinkedHashSet<String>();
+        for (Path file : removed) {
+            removedFiles.add(file.toString());
+        }
+
+        Set<String> removedTrees = new LinkedHashSet<String>();
+        for (Path directory : removedDirectories) {
+            removedTrees.add(directory.toString() + File.separator);
+        }
+
+        Set<String> relistedTrees = new LinkedHashSet<String>();
+        for (Path directory : relistedDirectories) {
+            relistedTrees.add(directory.toString() + File.separator);
+        }
+
+        added.clear();
+        removed.clear();
+        removedDirectories.clear();
+        relistedDirectories.clear();
+
+        if (!images.isEmpty() || !removedFiles.isEmpty() || !removedTrees.isEmpty() || !relistedTrees.isEmpty())
+            listener.changed(images, removedFiles, removedTrees, relistedTrees);
+    }
+}
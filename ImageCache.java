@@ -0,0 +1,228 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class ImageCache keeps decoded images in memory, so that redrawing an image does not read and decode its file again.
+ *
+ * Images are cached at the size they are drawn at, i.e., an entry is identified by the file name plus the target width and height.
+ * The cache is bounded by a budget of bytes rather than a number of entries.
+ * When adding an image exceeds the budget, the least recently used images are evicted.
+ *
+ * The cache may be used from several threads. Decoding happens outside of the lock, so a slow decode does not block other lookups.
+ *
+ * @version 17 October 2026
+ */
+public class ImageCache {
+
+    // the budget used, if none is given
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    // bytes per pixel of a cached image
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // the maximum number of bytes the cached images may occupy
+    private final long budgetBytes;
+
+    // the number of bytes the cached images currently occupy
+    private long usedBytes;
+
+    // the cached images, in order from least to most recently used
+    private final LinkedHashMap<String, BufferedImage> entries = new LinkedHashMap<String, BufferedImage>(16, 0.75f, true);
+
+    // statistics
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long decodeNanos;
+
+    /**
+     * Creates an image cache with the default budget.
+     */
+    public ImageCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * Creates an image cache.
+     *
+     * @param budgetBytes the maximum number of bytes the cached images may occupy
+     */
+    public ImageCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Returns the image in the given file, scaled to the given size.
+     *
+     * The image is decoded and added to the cache, if it is not cached yet.
+     *
+     * @param fileName the file name of the image
+     * @param width the width the image is drawn at
+     * @param height the height the image is drawn at
+     * @return the scaled image, or null if the file could not be decoded
+     */
+    public BufferedImage get(String fileName, int width, int height) {
+        String key = key(fileName, width, height);
+
+        synchronized (this) {
+            BufferedImage image = entries.get(key);
+            if (image != null) {
+                hits++;
+                return image;
+            }
+            misses++;
+        }
+
+        long start = System.nanoTime();
+        BufferedImage image = decode(fileName, width, height);
+        long elapsed = System.nanoTime() - start;
+        if (Metrics.ENABLED)
+            Metrics.DECODE.record(start);
+
+        synchronized (this) {
+            decodeNanos += elapsed;
+        }
+
+        if (image != null)
+            put(key, image);
+
+        return image;
+    }
+
+    /**
+     * Returns whether the image in the given file is cached at the given size.
+     *
+     * Does not count as a use of the image, i.e., neither the statistics nor the eviction order change.
+     */
+    public synchronized boolean contains(String fileName, int width, int height) {
+        return entries.containsKey(key(fileName, width, height));
+    }
+
+    /**
+     * Returns the number of lookups that found their image in the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that had to decode their image.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of images evicted to stay within the budget.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the total time in nanoseconds spent reading and scaling images, over all threads.
+     */
+    public synchronized long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    /**
+     * Returns the number of bytes the cached images currently occupy.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Returns the maximum number of bytes the cached images may occupy.
+     */
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Removes all images from the cache. The statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Adds an image to the cache, evicting the least recently used images as long as the budget is exceeded.
+     *
+     * Images that are larger than the whole budget are not cached.
+     */
+    private synchronized void put(String key, BufferedImage image) {
+        long bytes = sizeOf(image);
+        if (bytes > budgetBytes)
+            return;
+
+        BufferedImage previous = entries.put(key, image);
+        if (previous != null)        // another thread decoded the same image meanwhile
+            usedBytes -= sizeOf(previous);
+        usedBytes += bytes;
+
+        Iterator<Map.Entry<String, BufferedImage>> eldest = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes) {
+            BufferedImage evicted = eldest.next().getValue();
+            eldest.remove();
+            usedBytes -= sizeOf(evicted);
+            evictions++;
+        }
+    }
+
+    /**
+     * Reads the image in the given file and scales it to the given size.
+     *
+     * The image is decoded at reduced resolution, as far as that still covers the given size (see class ImageDecoder).
+     *
+     * @return the scaled image, or null if the file could not be decoded
+     */
+    private static BufferedImage decode(String fileName, int width, int height) {
+        BufferedImage source;
+        try {
+            source = ImageDecoder.read(new File(fileName), width, height);
+        } catch (IOException e) {
+            return null;
+        }
+
+        if (source == null)     // no reader for this file format
+            return null;
+
+        BufferedImage scaled = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, scaled.getWidth(), scaled.getHeight(), null);
+        g.dispose();
+
+        return scaled;
+    }
+
+    /**
+     * Returns the key of an image at a particular size.
+     */
+    private static String key(String fileName, int width, int height) {
+        return fileName + '@' + width + 'x' + height;
+    }
+
+    /**
+     * Returns the number of bytes an image occupies.
+     */
+    private static long sizeOf(BufferedImage image) {
+        return sizeOf(image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Returns the number of bytes a cached image of the given size occupies.
+     */
+    public static long sizeOf(int width, int height) {
+        return (long) width * height * BYTES_PER_PIXEL;
+    }
+}
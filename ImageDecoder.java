@@ -0,0 +1,75 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Class ImageDecoder reads image files at roughly the resolution they are drawn at, rather than at their full resolution.
+ *
+ * Images are drawn much smaller than a camera takes them: the viewer draws into a box of 450x450 pixels and thumbnails
+ * are at most 100 pixels wide, while a source image may have 40 megapixels. Reading such a source with ImageIO.read
+ * allocates all of its pixels only for most of them to be dropped when scaling.
+ *
+ * The decoder reads the size of the image from its header first and then lets the image reader skip pixels while decoding
+ * (source subsampling): with a factor of n, only every n-th pixel of every n-th row is kept. The factor is chosen
+ * as large as possible such that the decoded image still covers the destination box, so scaling it down to the box
+ * afterwards gives about the same quality as scaling the full image, while the decoded image takes about 1/(n*n) of the memory.
+ *
+ * @version 17 October 2026
+ */
+public class ImageDecoder {
+
+    /**
+     * Reads an image, skipping the pixels that are not needed to draw it in a box of the given size.
+     *
+     * The image is not scaled to the box: it keeps its aspect ratio and is at least as large as the box in both directions,
+     * unless the source image is smaller.
+     *
+     * @param file the image file
+     * @param width the width of the box the image is drawn in
+     * @param height the height of the box the image is drawn in
+     * @return the decoded image, or null if there is no reader for the format of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static BufferedImage read(File file, int width, int height) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(file);
+        if (input == null)
+            throw new IOException("cannot open " + file);
+
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext())     // no reader for this file format
+                return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int factor = subsampling(reader.getWidth(0), reader.getHeight(0), width, height);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Returns the largest subsampling factor for which an image still covers a box in both directions, or 1 if none.
+     *
+     * @param sourceWidth the width of the image in the file
+     * @param sourceHeight the height of the image in the file
+     * @param width the width of the box
+     * @param height the height of the box
+     */
+    public static int subsampling(int sourceWidth, int sourceHeight, int width, int height) {
+        return Math.max(1, Math.min(sourceWidth / Math.max(1, width), sourceHeight / Math.max(1, height)));
+    }
+}
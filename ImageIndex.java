@@ -0,0 +1,327 @@
+/**
+ * Class ImageIndex maintains a positional index over the nodes of an image list,
+ * so that the node at a position and the position of a node can be found without walking the list.
+ *
+ * The index is a balanced binary tree of the image nodes themselves (an implicit treap):
+ * an in-order traversal of the tree visits the nodes in list order, every node knows the number of nodes in its subtree,
+ * and random priorities keep the tree balanced with high probability. Looking up, inserting and removing a node take
+ * O(log n) time; building the index for a whole list takes O(n) time. A range of nodes can be cut out as a tree of its own
+ * and inserted again elsewhere in O(log n) time, independent of its length.
+ *
+ * The tree links are kept in the image nodes. The index does not change the list links;
+ * keeping list and index in the same order is the responsibility of class Images.
+ *
+ * @version 17 October 2026
+ */
+public class ImageIndex {
+
+    // the root of the tree, or null if the index is empty
+    private ImageNode root;
+
+    // the results of the last split: the tree of the first nodes and the tree of the remaining nodes
+    private ImageNode splitLeft;
+    private ImageNode splitRight;
+
+    /**
+     * Returns the number of indexed nodes.
+     */
+    public int size() {
+        return weight(root);
+    }
+
+    /**
+     * Removes all nodes from the index.
+     */
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Returns the node at a position.
+     *
+     * @param position the position, counting from 0
+     * @return the node, or null if the position is out of range
+     */
+    public ImageNode get(int position) {
+        ImageNode node = root;
+        int visits = 0;
+
+        while (node != null) {
+            visits++;
+            int leftWeight = weight(node.indexLeft);
+            if (position < leftWeight)
+                node = node.indexLeft;
+            else if (position == leftWeight) {
+                if (Metrics.ENABLED)
+                    Metrics.walked(Metrics.Walk.INDEX_GET, visits);
+                return node;
+            } else {
+                position -= leftWeight + 1;
+                node = node.indexRight;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the position of a node.
+     *
+     * Assumption: the node is indexed.
+     *
+     * @param node the node whose position is required
+     */
+    public int indexOf(ImageNode node) {
+        int position = weight(node.indexLeft);
+        int visits = 1;
+
+        // every ancestor that the node is to the right of precedes it, together with its left subtree
+        for (ImageNode child = node, parent = node.indexParent; parent != null; child = parent, parent = parent.indexParent) {
+            visits++;
+            if (parent.indexRight == child)
+                position += weight(parent.indexLeft) + 1;
+        }
+
+        if (Metrics.ENABLED)
+            Metrics.walked(Metrics.Walk.INDEX_OF, visits);
+        return position;
+    }
+
+    /**
+     * Returns true, if a node is indexed, i.e., if it is part of the list.
+     *
+     * Takes O(log n) time, as the node's ancestors are followed up to the root.
+     */
+    public boolean contains(ImageNode node) {
+        ImageNode top = node;
+        while (top.indexParent != null) {
+            top = top.indexParent;
+        }
+        return top == root;
+    }
+
+    /**
+     * Inserts a node at a position. The nodes from that position on move one position further.
+     *
+     * @param position the position of the new node, from 0 to size()
+     * @param node the node to insert; it must not be indexed
+     */
+    public void insert(int position, ImageNode node) {
+        detach(node);
+
+        split(root, position);
+        ImageNode right = splitRight;
+        root = merge(merge(splitLeft, node), right);
+        root.indexParent = null;
+    }
+
+    /**
+     * Removes a node from the index. The nodes after it move one position back.
+     *
+     * Assumption: the node is indexed.
+     *
+     * @param node the node to remove
+     */
+    public void remove(ImageNode node) {
+        ImageNode replacement = merge(node.indexLeft, node.indexRight);
+        ImageNode parent = node.indexParent;
+
+        if (replacement != null)
+            replacement.indexParent = parent;
+
+        if (parent == null)
+            root = replacement;
+        else if (parent.indexLeft == node)
+            parent.indexLeft = replacement;
+        else
+            parent.indexRight = replacement;
+
+        // the ancestors have one node less in their subtrees
+        for (ImageNode ancestor = parent; ancestor != null; ancestor = ancestor.indexParent) {
+            update(ancestor);
+        }
+
+        detach(node);
+    }
+
+    /**
+     * Replaces the index with one of the list that starts with the given node, in the order of the successor links.
+     * Takes O(n) time.
+     *
+     * @param first the first node of the list, or null for an empty list
+     */
+    public void build(ImageNode first) {
+        root = buildTree(first);
+    }
+
+    /**
+     * Inserts a tree of nodes at a position.
+     * The nodes from that position on move further by the number of nodes in the tree.
+     *
+     * Takes O(log n) time, independent of the size of the tree.
+     *
+     * @param position the position of the first node of the tree, from 0 to size()
+     * @param tree the tree, as returned by 'cut' or 'buildTree', or null for an empty tree
+     */
+    public void insertTree(int position, ImageNode tree) {
+        split(root, position);
+        ImageNode right = splitRight;
+        root = merge(merge(splitLeft, tree), right);
+        if (root != null)
+            root.indexParent = null;
+    }
+
+    /**
+     * Removes the nodes from one position up to, but not including, another position from the index.
+     * The nodes after them move back by their number.
+     *
+     * The removed nodes are returned as a tree of their own, which can be inserted again with 'insertTree'.
+     * Takes O(log n) time, independent of the number of removed nodes.
+     *
+     * @param from the position of the first node to remove
+     * @param to the position after the last node to remove, from 'from' to size()
+     * @return the tree of the removed nodes, or null if none were removed
+     */
+    public ImageNode cut(int from, int to) {
+        split(root, to);
+        ImageNode right = splitRight;
+        split(splitLeft, from);
+        ImageNode removed = splitRight;
+        root = merge(splitLeft, right);
+        if (root != null)
+            root.indexParent = null;
+        return removed;
+    }
+
+    /**
+     * Builds a tree of the list that starts with the given node, in the order of the successor links.
+     *
+     * Builds the tree in linear time by keeping its right spine: every new node is the last one in order,
+     * so it becomes the right child of the deepest spine node with a higher priority, and
+     * the spine nodes below that become its left subtree.
+     *
+     * @param first the first node of the list, or null for an empty list
+     * @return the root of the tree, or null for an empty list
+     */
+    public static ImageNode buildTree(ImageNode first) {
+        ImageNode tree = null;
+        ImageNode rightmost = null;
+        int visits = 0;
+
+        for (ImageNode node = first; node != null; node = node.getNext()) {
+            visits++;
+            detach(node);
+
+            // pop the spine nodes with a lower priority; their subtrees are complete
+            ImageNode popped = null;
+            ImageNode spine = rightmost;
+            while (spine != null && spine.indexPriority < node.indexPriority) {
+                update(spine);
+                popped = spine;
+                spine = spine.indexParent;
+            }
+
+            node.indexLeft = popped;
+            if (popped != null)
+                popped.indexParent = node;
+
+            node.indexParent = spine;
+            if (spine == null)
+                tree = node;
+            else
+                spine.indexRight = node;
+
+            rightmost = node;
+        }
+
+        // the remaining spine nodes are complete now, from the bottom up
+        for (ImageNode spine = rightmost; spine != null; spine = spine.indexParent) {
+            update(spine);
+        }
+
+        if (Metrics.ENABLED)
+            Metrics.walked(Metrics.Walk.INDEX_BUILD, visits);
+        return tree;
+    }
+
+    /**
+     * Splits a tree into the tree of its first nodes and the tree of the remaining nodes, stored in splitLeft and splitRight.
+     *
+     * @param tree the tree to split
+     * @param count the number of nodes that go into the first tree
+     */
+    private void split(ImageNode tree, int count) {
+        if (tree == null) {
+            splitLeft = splitRight = null;
+            return;
+        }
+
+        int leftWeight = weight(tree.indexLeft);
+        if (leftWeight < count) {
+            // the root and its left subtree go into the first tree, its right subtree is split further
+            split(tree.indexRight, count - leftWeight - 1);
+            tree.indexRight = splitLeft;
+            if (splitLeft != null)
+                splitLeft.indexParent = tree;
+            splitLeft = tree;
+        }
+        else {
+            // the root and its right subtree go into the second tree, its left subtree is split further
+            split(tree.indexLeft, count);
+            tree.indexLeft = splitRight;
+            if (splitRight != null)
+                splitRight.indexParent = tree;
+            splitRight = tree;
+        }
+
+        tree.indexParent = null;
+        update(tree);
+    }
+
+    /**
+     * Joins two trees, all nodes of the first preceding all nodes of the second.
+     *
+     * @return the joined tree, its root's parent link is left to the caller
+     */
+    private ImageNode merge(ImageNode first, ImageNode second) {
+        if (first == null)
+            return second;
+        if (second == null)
+            return first;
+
+        if (first.indexPriority > second.indexPriority) {
+            first.indexRight = merge(first.indexRight, second);
+            first.indexRight.indexParent = first;
+            update(first);
+            return first;
+        }
+        else {
+            second.indexLeft = merge(first, second.indexLeft);
+            second.indexLeft.indexParent = second;
+            update(second);
+            return second;
+        }
+    }
+
+    /**
+     * Recomputes the number of nodes in the subtree of a node from its children.
+     */
+    private static void update(ImageNode node) {
+        node.indexWeight = 1 + weight(node.indexLeft) + weight(node.indexRight);
+    }
+
+    /**
+     * Returns the number of nodes in a subtree.
+     */
+    private static int weight(ImageNode node) {
+        return node == null ? 0 : node.indexWeight;
+    }
+
+    /**
+     * Makes a node the only node of its own tree.
+     */
+    private static void detach(ImageNode node) {
+        node.indexLeft = node.indexRight = node.indexParent = null;
+        node.indexWeight = 1;
+    }
+}
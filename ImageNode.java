@@ -1,20 +1,40 @@
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Class ImageNode implements a node that forms a linked list data structure in conjunction with other nodes of the same type.
  * 
  * A node represents an images by storing the filename of the image.
- * A node furthermore links to their successor node.
+ * The file name is stored in two parts: its directory, which is shared with all other nodes of images in that directory
+ * (see class DirectoryTable), and the name within the directory, as UTF-8 bytes without the overhead of a String object.
+ * The full file name is put together whenever it is requested.
+ * A node furthermore links to their successor and predecessor nodes.
+ * In addition, a node carries the links by which class ImageIndex arranges the nodes of a list in a positional index.
  * 
  * @author Thomas Kuehne 
  * @version 5 September 2013
  */
 public class ImageNode {
 
-    // A string that contains the full file name of an image file.
-    private String imageFileName;
+    // The directory of the image file including its trailing separator, shared through the DirectoryTable.
+    private final String directory;
+
+    // The name of the image file within its directory, in UTF-8.
+    private final byte[] name;
 
     // A reference to the next ImageNode in the linked list.
     private ImageNode next;
 
+    // A reference to the previous ImageNode in the linked list.
+    private ImageNode previous;
+
+    // The links, subtree size and priority of this node in the tree of an ImageIndex, maintained by that class.
+    ImageNode indexLeft;
+    ImageNode indexRight;
+    ImageNode indexParent;
+    int indexWeight = 1;
+    final int indexPriority = ThreadLocalRandom.current().nextInt();
+
     /**
      * Creates an image node
      * 
@@ -23,7 +43,23 @@ public class ImageNode {
      */
     public ImageNode(String imageFileNameStr, ImageNode nextNode)
     {
-        this.imageFileName = imageFileNameStr;
+        int directoryLength = DirectoryTable.directoryLength(imageFileNameStr);
+        this.directory = DirectoryTable.intern(imageFileNameStr.substring(0, directoryLength));
+        this.name = imageFileNameStr.substring(directoryLength).getBytes(StandardCharsets.UTF_8);
+        this.next = nextNode;
+    }
+
+    /**
+     * Creates an image node from the two parts of the file name, e.g., as they are stored in a playlist file.
+     * 
+     * @param directory the directory of the image including its trailing separator, or "" for no directory
+     * @param name the name of the image within its directory, in UTF-8; the node keeps the array
+     * @param nextNode the reference to the next node in the list
+     */
+    public ImageNode(String directory, byte[] name, ImageNode nextNode)
+    {
+        this.directory = DirectoryTable.intern(directory);
+        this.name = name;
         this.next = nextNode;
     }
 
@@ -31,7 +67,23 @@ public class ImageNode {
      * Returns the filename of the image. 
      */
     public String getFileName() {
-        return imageFileName;
+        return directory + getName();
+    }
+
+    /**
+     * Returns the directory of the image including its trailing separator, or "" if the file name has no directory.
+     * 
+     * Nodes of images in the same directory return the same String object.
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the name of the image within its directory.
+     */
+    public String getName() {
+        return new String(name, StandardCharsets.UTF_8);
     }
 
     /** 
@@ -48,21 +100,49 @@ public class ImageNode {
         this.next = newNext;
     }
 
+    /** 
+     * Returns the predecessor of this node.
+     */
+    public ImageNode getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Changes the predecessor of this node.
+     */
+    public void setPrevious(ImageNode newPrevious) {
+        this.previous = newPrevious;
+    }
+
+    /**
+     * Returns the number of nodes in the list started by this node, using the iterative implementation.
+     *
+     * @return the number of nodes in the list starting at this node.
+     */
+    public int count() {
+        return count(ListStrategy.ITERATIVE);
+    } 
+
     /**
      * Returns the number of nodes in the list started by this node.
      * 
      * Can be called from outside this class, and then switches between using the 
-     * iterative or recursive private implementations of the method depending on the value of a boolean field in the 
-     * SlideshowApp class.
+     * iterative or recursive private implementations of the method depending on the given strategy.
      *
+     * @param strategy the implementation to use
      * @return the number of nodes in the list starting at this node.
      */
-    public int count() {
-        if (SlideshowApp.isRecursive) {
-            return countRec();
+    public int count(ListStrategy strategy) {
+        int numNodes;
+        if (strategy == ListStrategy.RECURSIVE) {
+            numNodes = countRec();
         } else {
-            return countIter();
+            numNodes = countIter();
         }
+
+        if (Metrics.ENABLED)
+            Metrics.walked(Metrics.Walk.COUNT, numNodes);
+        return numNodes;
     } 
 
     /**
@@ -104,6 +184,10 @@ public class ImageNode {
 
     public void insertAfter(ImageNode newNode) {
         newNode.setNext(this.getNext());
+        newNode.setPrevious(this);
+
+        if (this.getNext() != null)
+            this.getNext().setPrevious(newNode);
         this.setNext(newNode);
     }
 
@@ -118,17 +202,18 @@ public class ImageNode {
      * @param newNode the new node to be inserted
      * @param cursor  the position before which the node needs to be inserted
      * 
-     * HINT: Make use of method 'nodeBefore' in order to find the node before the cursor.
-     * HINT: Once you have the previous node, you can make use of method 'insertAfter'.
+     * The node before the cursor is found through its predecessor link, so no walk is required.
      *
      */
     public void insertBefore(ImageNode newNode, ImageNode cursor) {
-        ImageNode place = nodeBefore(cursor);
+        ImageNode place = cursor.getPrevious();
         place.insertAfter(newNode);
     } 
 
     /**
-     * Returns the node before the provided node.
+     * Returns the node before the provided node, using the iterative implementation.
+     * 
+     * Finds the node by walking the list starting at this node, i.e., it does not rely on predecessor links.
      * 
      * Assumption: The provided node is one of the successors of this node.
      * 
@@ -136,7 +221,24 @@ public class ImageNode {
      */
 
     public ImageNode nodeBefore(ImageNode target) {
-        if (SlideshowApp.isRecursive) {
+        return nodeBefore(target, ListStrategy.ITERATIVE);
+    }
+
+    /**
+     * Returns the node before the provided node.
+     * 
+     * Switches between the iterative or recursive private implementations depending on the given strategy.
+     * 
+     * Assumption: The provided node is one of the successors of this node.
+     * 
+     * @param target the node whose predecessor is required 
+     * @param strategy the implementation to use
+     */
+
+    public ImageNode nodeBefore(ImageNode target, ListStrategy strategy) {
+        if (strategy == ListStrategy.RECURSIVE) {
+            if (Metrics.ENABLED)
+                Metrics.walked(Metrics.Walk.NODE_BEFORE, 0);    // the recursion adds its visits one by one
             return nodeBeforeRec(target);
         } else {
             return nodeBeforeIter(target);
@@ -155,9 +257,14 @@ public class ImageNode {
      */
     private ImageNode nodeBeforeIter(ImageNode target) {
         ImageNode before = this;
+        int visits = 1;
         while (before.getNext() != target) {
             before = before.getNext();
+            visits++;
         }
+
+        if (Metrics.ENABLED)
+            Metrics.walked(Metrics.Walk.NODE_BEFORE, visits);
         return before;
     }
 
@@ -171,6 +278,9 @@ public class ImageNode {
      * @param target the node whose predecessor is required 
      */
     private ImageNode nodeBeforeRec(ImageNode target) {
+        if (Metrics.ENABLED)
+            Metrics.visited(Metrics.Walk.NODE_BEFORE, 1);
+
         if (this.next != target) {
             return next.nodeBeforeRec(target);
         }
@@ -186,6 +296,9 @@ public class ImageNode {
 
     public void removeNodeUsingPrevious(ImageNode previous) {
         previous.setNext(this.getNext());
+
+        if (this.getNext() != null)
+            this.getNext().setPrevious(previous);
     }     
 
     /**
@@ -195,17 +308,25 @@ public class ImageNode {
      * 
      * For the challenge part of the assignment.
      * 
-     * This method should be called by method reverseRec in class Images.
+     * Class Images no longer calls this method, as it reverses its list in constant time without relinking the nodes.
+     * Both successor and predecessor links are reversed.
+     * Uses one stack frame per node, so it is only used with ListStrategy.RECURSIVE.
      * @return the new first node  
      */
 
     public ImageNode reverseUsingPrevious(ImageNode head) {
-        if (head == null || head.getNext() == null) return head;
+        if (head == null) return head;
+
+        if (head.getNext() == null) {   // the old last node becomes the new first node
+            head.setPrevious(null);
+            return head;
+        }
         
         ImageNode after = head.getNext();
         head.setNext(null);
         ImageNode rest = reverseUsingPrevious(after);
         after.setNext(head);
+        head.setPrevious(after);
         return rest;
     }         
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Class ImageScanner adds the images found in a directory tree to an image list.
+ *
+ * The tree is walked as a stream of directory entries, one directory at a time, so that the scan never holds more than
+ * one directory listing and one batch of files. The files of a batch are checked for being images in parallel,
+ * and the images of a batch are appended to the list in one piece (see Images.appendAll),
+ * so that adding n images takes O(n) time in total.
+ *
+ * A file counts as an image, if its name has a suffix that ImageIO can read and a reader accepts its first bytes.
+ * Within a directory, files are added in the order of their names, before the files of its subdirectories.
+ * Hidden files and directories are skipped, and symbolic links to directories are not followed.
+ *
+ * @version 17 October 2026
+ */
+public class ImageScanner {
+
+    /**
+     * Receives the progress of a scan.
+     */
+    public interface Listener {
+
+        /**
+         * Called after every batch of files, from the scanning thread.
+         *
+         * @param filesScanned the number of files looked at so far
+         * @param imagesAdded the number of images added to the list so far
+         */
+        void progress(int filesScanned, int imagesAdded);
+    }
+
+    // the number of files that are checked and appended together
+    public static final int BATCH_SIZE = 4096;
+
+    // the lower-case file name suffixes that ImageIO can read
+    private final Set<String> suffixes = new HashSet<String>();
+
+    /**
+     * Creates a scanner for the image formats that ImageIO can read.
+     */
+    public ImageScanner() {
+        for (String suffix : ImageIO.getReaderFileSuffixes()) {
+            suffixes.add(suffix.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Scans a directory tree and appends the images in it to the end of an image list.
+     *
+     * @param root the directory to scan
+     * @param images the list the images are appended to
+     * @param listener receives the progress of the scan, or null
+     * @return the number of images added
+     * @throws IOException if the root directory cannot be read; subdirectories that cannot be read are skipped
+     */
+    public int scan(Path root, Images images, Listener listener) throws IOException {
+        List<Path> batch = new ArrayList<Path>(BATCH_SIZE);
+        int filesScanned = 0;
+        int imagesAdded = 0;
+
+        // the directories still to be scanned, the next one on top
+        Deque<Path> directories = new ArrayDeque<Path>();
+        directories.push(root);
+
+        while (!directories.isEmpty()) {
+            Path directory = directories.pop();
+
+            List<Path> entries;
+            try {
+                entries = list(directory);
+            } catch (IOException e) {
+                if (directory == root)
+                    throw e;
+                continue;
+            }
+
+            // subdirectories are pushed in reverse, so that they are scanned in the order of their names
+            List<Path> subdirectories = new ArrayList<Path>();
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS))
+                    subdirectories.add(entry);
+                else if (Files.isRegularFile(entry)) {
+                    batch.add(entry);
+                    filesScanned++;
+
+                    if (batch.size() == BATCH_SIZE) {
+                        imagesAdded += append(batch, images);
+                        batch.clear();
+                        if (listener != null)
+                            listener.progress(filesScanned, imagesAdded);
+                    }
+                }
+            }
+            for (int i = subdirectories.size() - 1; i >= 0; i--) {
+                directories.push(subdirectories.get(i));
+            }
+        }
+
+        imagesAdded += append(batch, images);
+        if (listener != null)
+            listener.progress(filesScanned, imagesAdded);
+
+        return imagesAdded;
+    }
+
+    /**
+     * Returns true, if a file is an image that ImageIO can read.
+     *
+     * Looks at the suffix first and only opens files with a known suffix.
+     */
+    public boolean isImage(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || !suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT)))
+            return false;
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            return input != null && ImageIO.getImageReaders(input).hasNext();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks a batch of files in parallel and appends the images among them to the list, keeping their order.
+     *
+     * @return the number of images appended
+     */
+    private int append(List<Path> batch, Images images) {
+        List<String> imageFileNames = batch.parallelStream()
+            .filter(new Predicate<Path>() {
+                public boolean test(Path file) {
+                    return isImage(file);
+                }
+            })
+            .map(new Function<Path, String>() {
+                public String apply(Path file) {
+                    return file.toAbsolutePath().toString();
+                }
+            })
+            .collect(Collectors.toList());
+
+        images.appendAll(imageFileNames);
+        return imageFileNames.size();
+    }
+
+    /**
+     * Returns the entries of a directory that are not hidden, in the order of their names.
+     */
+    private static List<Path> list(Path directory) throws IOException {
+        List<Path> entries = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                if (!entry.getFileName().toString().startsWith("."))
+                    entries.add(entry);
+            }
+        }
+
+        Collections.sort(entries);
+        return entries;
+    }
+}
@@ -1,30 +1,97 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 /**
  * Class Images implements a list of images.
  * 
  * Each image is represented with an ImageNode object.
- * The ImageNode objects form a linked list. 
+ * The ImageNode objects form a doubly linked list. 
  * 
- * An object of this class maintains the reference to the first image node and
+ * An object of this class maintains the references to the first and last image nodes and
  * delegates operations to image nodes as necessary. 
+ * Moving the cursor, inserting and removing use the predecessor links and thus never rescan the list.
+ * 
+ * In addition, the nodes are arranged in a positional index (see class ImageIndex), 
+ * so that the cursor can be moved to the image at a position, and the position of the cursor can be found, in O(log n) time.
+ * Inserting and removing keep the index up to date in O(log n) time.
+ * Images can also be added, removed and moved in bulk: whole segments of nodes are relinked at once,
+ * and their part of the index is built or moved as one piece.
  * 
  * An object of this class furthermore maintains a "cursor", i.e., a reference to a location in the list.
  * 
- * The references to both first node and cursor may be null, representing an empty collection. 
+ * The references to first node, last node and cursor may be null, representing an empty collection. 
+ * 
+ * The number of images is maintained in a counter that every insertion and removal keeps up to date,
+ * so that counting does not have to walk the list. Tests and benchmarks check the counter, the links and the index
+ * against a full walk of the list with 'checkInvariants'.
+ * 
+ * As a Playlist, a list of images is always complete, as all its images are in memory.
+ * 
+ * Reversing the list takes constant time: the nodes stay where they are, and the list only remembers that it is reversed.
+ * While it is reversed, the list reads its nodes from the last one to the first one, i.e., the image after an image is
+ * the one before its node, the image at position p is the node at position count()-1-p of the index, and so on.
+ * Every operation takes the orientation into account, so that clients do not notice it, except when they walk the nodes
+ * themselves: they use 'getNext' and 'getPrevious' of this class rather than of class ImageNode.
+ * 
+ * Walking the list is done iteratively in constant stack space, unless the recursive 
+ * implementations are explicitly selected with 'setStrategy'.
+ * 
+ * A list of images may be used from several threads, e.g. by the viewer and prefetcher while images are added in the background.
+ * Every method that changes the list or moves the cursor holds a write lock, every method that only reads holds a read lock,
+ * so readers run concurrently and see the list either before or after a change. Changes hold the write lock for O(log n) time
+ * at most: the nodes of bulk additions are created and indexed before the lock is taken.
+ * Clients that walk the list use a read-only cursor (see 'newCursor'), which holds the read lock for each of its steps,
+ * or hold the read lock themselves while they walk the image nodes (see 'getReadLock').
+ * Clients that combine several changes into one hold the write lock themselves (see 'getWriteLock').
  * 
  * @author Thomas Kuehne
  * @version 5/9/2013
  */
 
-public class Images
+public class Images implements Playlist
 {
     private ImageNode head;     // the first image node
+    private ImageNode tail;     // the last image node
     private ImageNode cursor;   // the current point for insertion, removal, etc. 
+    private int size;           // the number of image nodes in the list
+    private ImageIndex index = new ImageIndex();   // the positions of the image nodes
+    private boolean reversed;   // whether the images are in the reverse order of the nodes
+
+    private ListStrategy strategy = ListStrategy.ITERATIVE;   // how lists are walked
+
+    // guards the list: reading takes the read lock, changing the list or moving the cursor takes the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
      * Creates an empty list of images.
      */
     public Images() {
-        cursor = head = null;
+        cursor = head = tail = null;
+        size = 0;
+    }
+
+    /**
+     * Returns the strategy used to walk the list.
+     */
+    public ListStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Selects the strategy used to walk the list.
+     * 
+     * ListStrategy.RECURSIVE needs one stack frame per image and is only suitable for short lists.
+     * 
+     * @param newStrategy the strategy to use from now on
+     */
+    public void setStrategy(ListStrategy newStrategy) {
+        strategy = newStrategy;
     }
 
     /**
@@ -33,11 +100,101 @@ public class Images
      * This method relieves clients of Images from knowing about image nodes and the 'getFileName()' method.
      */
     public String getImageFileNameAtCursor() {
-        // deal with an inappropriate call gracefully
-        if (cursor == null)
-            return "";  // the correct response would be to throw an exception.
+        lock.readLock().lock();
+        try {
+            // deal with an inappropriate call gracefully
+            if (cursor == null)
+                return "";  // the correct response would be to throw an exception.
+
+            return cursor.getFileName();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the file name of the image at the given position, or null if there is no image at that position.
+     * 
+     * @param position the position, counting from 0
+     */
+    public String getImageFileNameAt(int position) {
+        lock.readLock().lock();
+        try {
+            if (position < 0 || position >= size)
+                return null;
+
+            return nodeAt(position).getFileName();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true, as all images of the list are known.
+     */
+    public boolean isComplete() {
+        return true;
+    }
 
-        return cursor.getFileName();
+    /**
+     * Returns the lock that must be held while walking the image nodes from outside this class, e.g. from 'getFirst' or 'getCursor'.
+     * 
+     * Holding it keeps the list from being changed, but does not keep other readers from reading.
+     */
+    public Lock getReadLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Returns the lock that must be held while several changes are made that no reader may see in part,
+     * e.g. finding images with 'rangesOf' and removing them, so that no other change shifts the positions in between.
+     * 
+     * The lock is reentrant and its holder may read and change the list through all methods of this class.
+     */
+    public Lock getWriteLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Returns a new read-only cursor over the images, which is not positioned yet.
+     * 
+     * The cursor stays at its image while images are added, removed or moved elsewhere in the list.
+     * If its image is removed, the cursor continues from the position the image had when the cursor last moved.
+     */
+    public PlaylistCursor newCursor() {
+        return new ReadCursor();
+    }
+
+    /**
+     * Returns the first image node, or null if the list is empty.
+     * 
+     * Used by clients that need to read the whole list without moving the cursor.
+     */
+    public ImageNode getFirst() {
+        lock.readLock().lock();
+        try {
+            return first();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the image node after a node in the order of the list, or null if it is the last one.
+     * 
+     * Used by clients that walk the image nodes themselves, while they hold the read lock (see 'getReadLock').
+     */
+    public ImageNode getNext(ImageNode node) {
+        return reversed ? node.getPrevious() : node.getNext();
+    }
+
+    /**
+     * Returns the image node before a node in the order of the list, or null if it is the first one.
+     * 
+     * Used by clients that walk the image nodes themselves, while they hold the read lock (see 'getReadLock').
+     */
+    public ImageNode getPrevious(ImageNode node) {
+        return reversed ? node.getNext() : node.getPrevious();
     }
 
     /**
@@ -46,7 +203,12 @@ public class Images
      * Used by clients that want to save the current selection in order to restore it after an iteration.
      */
     public ImageNode getCursor() {
-        return cursor;
+        lock.readLock().lock();
+        try {
+            return cursor;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -55,7 +217,12 @@ public class Images
      * @param newCursor the new cursor position
      */
     public void setCursor(ImageNode newCursor) {
-        cursor = newCursor;
+        lock.writeLock().lock();
+        try {
+            cursor = newCursor;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -64,7 +231,12 @@ public class Images
      * For the core part of the assignment.
      */
     public void moveCursorToStart() {
-        cursor = head;
+        lock.writeLock().lock();
+        try {
+            cursor = first();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -75,11 +247,48 @@ public class Images
      * HINT: Consider the list could be empty. 
      */
     public void moveCursorToEnd() {
-        if (head == null)
-            return;
+        lock.writeLock().lock();
+        try {
+            if (head == null)
+                return;
+
+            cursor = last();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Positions the cursor at the image at the given position.
+     * 
+     * Does nothing, if there is no image at that position.
+     * 
+     * @param position the position, counting from 0
+     */
+    public void moveCursorTo(int position) {
+        lock.writeLock().lock();
+        try {
+            if (position < 0 || position >= size)
+                return;
+
+            cursor = nodeAt(position);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the position of the cursor, counting from 0, or -1 if the list is empty.
+     */
+    public int indexOfCursor() {
+        lock.readLock().lock();
+        try {
+            if (cursor == null)
+                return -1;
 
-        while (cursor.getNext() != null) {
-            moveCursorRight();
+            return positionOf(cursor);
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -87,12 +296,17 @@ public class Images
      * Moves the cursor position to the right. 
      */
     public void moveCursorRight() {
-        // is it impossible for the cursor to move right?
-        if (cursor == null  ||  cursor.getNext() == null)
-            return;
+        lock.writeLock().lock();
+        try {
+            // is it impossible for the cursor to move right?
+            if (cursor == null  ||  getNext(cursor) == null)
+                return;
 
-        // advance the cursor
-        cursor = cursor.getNext();
+            // advance the cursor
+            cursor = getNext(cursor);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -100,32 +314,84 @@ public class Images
      * 
      * Assumption: 'cursor' points to a node in the list!
      */
-    public void moveCursorLeft() {  
-        // is it impossible for the cursor to move left?
-        if (head == null || cursor == head)
-            return;
+    public void moveCursorLeft() {
+        lock.writeLock().lock();
+        try {
 
-        // setup an initial attempt to a reference to the node before the current cursor 
-        ImageNode previous = head;
+            // is it impossible for the cursor to move left?
+            if (head == null || cursor == first())
+                return;
 
-        // while the node before the cursor has not been found yet, keep advancing
-        while (previous.getNext() != cursor) {
-            previous = previous.getNext();
+            // step back along the predecessor link
+            cursor = getPrevious(cursor);
+        } finally {
+            lock.writeLock().unlock();
         }
-
-        cursor = previous;
     }
 
     /**
      * Returns the number of images
      * 
+     * Runs in constant time, as the number of images is maintained by the operations that change the list.
+     * 
      * @return number of images
      */
     public int count() {
-        if (head == null)     // is the list empty?
-            return 0;               // yes -> return zero
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of images by walking the whole list.
+     * 
+     * Used to check the maintained size counter for consistency.
+     * 
+     * @return number of images
+     */
+    public int countByWalking() {
+        lock.readLock().lock();
+        try {
+            if (head == null)     // is the list empty?
+                return 0;               // yes -> return zero
+
+            return head.count(strategy);      // no -> delegate to linked structure
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks that the size counter, the links between the nodes and the index agree with each other, in O(n) time.
+     * 
+     * @throws IllegalStateException if they do not
+     */
+    public void checkInvariants() {
+        lock.readLock().lock();
+        try {
+            int walked = 0;
+            ImageNode previous = null;
+            for (ImageNode node = head; node != null; node = node.getNext()) {
+                if (node.getPrevious() != previous)
+                    throw new IllegalStateException("broken predecessor link at node " + walked);
+                previous = node;
+                walked++;
+            }
 
-        return head.count();      // no -> delegate to linked structure
+            if (previous != tail)
+                throw new IllegalStateException("the last node is not the tail");
+            if (walked != size)
+                throw new IllegalStateException("size counter " + size + " disagrees with list length " + walked);
+            if (index.size() != size)
+                throw new IllegalStateException("size counter " + size + " disagrees with index size " + index.size());
+            if (cursor == null ? size > 0 : !index.contains(cursor))
+                throw new IllegalStateException("the cursor is not at an image of the list");
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -141,15 +407,28 @@ public class Images
      * 
      */
     public void addImageAfter(String imageFileName) {
-        if (head == null && cursor == null) {
-            head = cursor = new ImageNode(imageFileName, null);
-            return;
-        }
+        ImageNode node = new ImageNode(imageFileName, null);
+
+        lock.writeLock().lock();
+        try {
+            if (head == null && cursor == null) {
+                head = tail = cursor = node;
+                index.insert(0, cursor);
+                size = 1;
+                return;
+            }
 
-        ImageNode rest = cursor;
-        ImageNode node = new ImageNode(imageFileName, rest.getNext());
-        rest.insertAfter(node);
-        cursor = cursor.getNext();
+            // in a reversed list, the image after the cursor is the node before it
+            if (reversed)
+                linkNodeBefore(cursor, node);
+            else
+                linkNodeAfter(cursor, node);
+
+            cursor = node;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -167,29 +446,489 @@ public class Images
      * 
      */ 
     public void addImageBefore(String imageFileName) {  
-        if (head == null && cursor == null) {
-            head = cursor = new ImageNode(imageFileName, null);
+        ImageNode node = new ImageNode(imageFileName, null);
+
+        lock.writeLock().lock();
+        try {
+            if (head == null && cursor == null) {
+                head = tail = cursor = node;
+                index.insert(0, cursor);
+                size = 1;
+                return;
+            }
+
+            // in a reversed list, the image before the cursor is the node after it
+            if (reversed)
+                linkNodeAfter(cursor, node);
+            else
+                linkNodeBefore(cursor, node);
+
+            cursor = node;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds images at the end of the list, in the order of the collection.
+     *
+     * The new nodes are linked to each other and indexed as one piece before they are attached to the list,
+     * so adding k images takes O(k + log n) time rather than k separate insertions,
+     * and the list is locked only while the piece is attached, in O(log n) time (O(k + log n) if the list is reversed).
+     * The cursor stays at its image; if the list was empty, it is positioned at the first new image.
+     *
+     * @param imageFileNames the file names of the images to be added
+     */
+    public void appendAll(Collection<String> imageFileNames) {
+        Segment segment = new Segment(imageFileNames);
+        if (segment.size == 0)     // nothing to add
+            return;
+
+        lock.writeLock().lock();
+        try {
+            insert(last(), segment);
+            if (cursor == null)
+                cursor = first();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds images at the end of the list, given as the two parts of their file names (see class ImageNode), e.g.,
+     * as they are stored in a playlist file. Unlike 'appendAll' with file names, this does not split the file names,
+     * and otherwise works in the same way.
+     *
+     * @param directories the directory of every image, including its trailing separator
+     * @param names the name of every image within its directory, in UTF-8
+     */
+    public void appendAll(List<String> directories, List<byte[]> names) {
+        Segment segment = new Segment(directories, names);
+        if (segment.size == 0)     // nothing to add
+            return;
+
+        lock.writeLock().lock();
+        try {
+            insert(last(), segment);
+            if (cursor == null)
+                cursor = first();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds images after the cursor position, in the order of the collection.
+     *
+     * The new nodes are linked to each other and indexed as one piece before they are attached to the list,
+     * so adding k images takes O(k + log n) time rather than k separate insertions,
+     * and the list is locked only while the piece is attached, in O(log n) time.
+     * As after 'addImageAfter', the cursor is positioned at the last new image.
+     *
+     * @param imageFileNames the file names of the images to be added
+     */
+    public void addAllAfter(Collection<String> imageFileNames) {
+        Segment segment = new Segment(imageFileNames);
+        if (segment.size == 0)     // nothing to add
+            return;
+
+        lock.writeLock().lock();
+        try {
+            cursor = insert(cursor, segment).lastImage();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves all images of another list after the cursor position, leaving the other list empty.
+     *
+     * The nodes of the other list are attached as one segment and its index is joined with this index,
+     * so splicing takes O(log n) time, independent of the length of the other list,
+     * unless exactly one of the two lists is reversed: then the nodes of the other list are relinked in O(k) time first.
+     * The two lists are never locked at the same time.
+     * As after 'addAllAfter', the cursor is positioned at the last new image.
+     *
+     * @param other the list whose images are moved; must not be this list
+     */
+    public void splice(Images other) {
+        if (other == this)
+            return;
+
+        Segment segment = other.takeAll();
+        if (segment.size == 0)     // nothing to add
+            return;
+
+        lock.writeLock().lock();
+        try {
+            cursor = insert(cursor, segment).lastImage();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the images from one position up to, but not including, another position.
+     *
+     * The images are unlinked as one segment, so removing them takes O(log n) time, independent of their number.
+     * If the cursor is at one of them, it moves to the image after them, or to the image before them if there is none,
+     * as after 'remove'. Otherwise, the cursor stays at its image.
+     * Does nothing, if the positions do not describe a range of images in the list.
+     *
+     * @param from the position of the first image to be removed
+     * @param to the position after the last image to be removed
+     */
+    public void removeRange(int from, int to) {
+        cut(from, to);
+    }
+
+    /**
+     * Removes the images from one position up to, but not including, another position, and returns them as a list of their own.
+     *
+     * The images keep their nodes: they are unlinked and their part of the index is cut out as one piece,
+     * so cutting takes O(log n) time, independent of their number, and the images can be inserted again in O(log n) time
+     * (see 'insertAt'). The cursor moves as after 'removeRange'; the cursor of the returned list is at its first image.
+     * Returns an empty list, if the positions do not describe a range of images in the list.
+     *
+     * @param from the position of the first image to be removed
+     * @param to the position after the last image to be removed
+     * @return the removed images
+     */
+    public Images cut(int from, int to) {
+        Images removed = new Images();
+
+        lock.writeLock().lock();
+        try {
+            if (from < 0 || to > size || from >= to)
+                return removed;
+
+            // the positions of the nodes, which are the other way round if the list is reversed
+            int nodesFrom = reversed ? size - to : from;
+            int nodesTo = reversed ? size - from : to;
+
+            ImageNode first = index.get(nodesFrom);
+            ImageNode last = index.get(nodesTo - 1);
+            int cursorPosition = index.indexOf(cursor);
+            ImageNode before = reversed ? last.getNext() : first.getPrevious();
+            ImageNode after = reversed ? first.getPrevious() : last.getNext();
+
+            ImageNode tree = index.cut(nodesFrom, nodesTo);
+            unlink(first, last);
+
+            if (cursorPosition >= nodesFrom && cursorPosition < nodesTo)
+                cursor = after != null ? after : before;
+            size -= to - from;
+
+            // the removed list is not shared yet, so it needs no lock;
+            // it has the orientation of this list, so that its nodes need not be relinked
+            removed.reversed = reversed;
+            removed.cursor = removed.insert(null, new Segment(first, last, tree, to - from, reversed)).firstImage();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves all images of another list to a position of this list, leaving the other list empty.
+     *
+     * As with 'splice', this takes O(log n) time, independent of the length of the other list.
+     * The cursor stays at its image; if this list was empty, it is positioned at the first new image.
+     * Does nothing, if the position is neither in the list nor directly after its end.
+     *
+     * @param position the position of the first new image, from 0 to count()
+     * @param other the list whose images are moved; must not be this list
+     */
+    public void insertAt(int position, Images other) {
+        if (other == this || position < 0 || position > count())
+            return;
+
+        // the two lists are not locked at the same time, as with 'splice'
+        Segment segment = other.takeAll();
+        if (segment.size == 0)     // nothing to add
             return;
+
+        lock.writeLock().lock();
+        try {
+            // the list may have become shorter meanwhile
+            position = Math.min(position, size);
+            segment = insert(position == 0 ? null : nodeAt(position - 1), segment);
+            if (cursor == null)
+                cursor = segment.firstImage();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the images from one position up to, but not including, another position, so that they come before the image
+     * at a target position.
+     *
+     * The images are unlinked and attached again as one segment, so moving them takes O(log n) time, independent of their number.
+     * The cursor stays at its image.
+     * Does nothing, if the positions do not describe a range of images in the list, or if the target is within the range
+     * or at either end of it, where the images are already.
+     *
+     * @param from the position of the first image to be moved
+     * @param to the position after the last image to be moved
+     * @param target the position of the image that the moved images come before, or count() to move them to the end
+     * @return true, if the images were moved
+     */
+    public boolean moveRange(int from, int to, int target) {
+        lock.writeLock().lock();
+        try {
+            if (from < 0 || to > size || from >= to || target < 0 || target > size || (target > from && target < to))
+                return false;
+            if (target == from || target == to)     // already there
+                return false;
+
+            // the positions of the nodes, which are the other way round if the list is reversed
+            if (reversed) {
+                int nodesFrom = size - to;
+                to = size - from;
+                from = nodesFrom;
+                target = size - target;
+            }
+
+            ImageNode first = index.get(from);
+            ImageNode last = index.get(to - 1);
+
+            // the position of the range once it has been taken out of the list
+            int position = target < from ? target : target - (to - from);
+
+            ImageNode tree = index.cut(from, to);
+            unlink(first, last);
+
+            index.insertTree(position, tree);
+            linkAfter(position == 0 ? null : index.get(position - 1), first, last);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all images and returns them as a segment.
+     */
+    private Segment takeAll() {
+        lock.writeLock().lock();
+        try {
+            Segment segment = new Segment(head, tail, index.cut(0, size), size, reversed);
+            removeAll();
+            return segment;
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
+
+    /**
+     * Inserts a segment after an image of the list, or at the start of the list. The caller holds the write lock.
+     *
+     * A segment of the other orientation than this list is reversed first, in O(k) time.
+     *
+     * @param place the node of the image after which the segment is inserted, or null to insert it at the start
+     * @param segment the segment
+     * @return the inserted segment, in the orientation of this list
+     */
+    private Segment insert(ImageNode place, Segment segment) {
+        if (segment.reversed != reversed)
+            segment = segment.reverse();
 
-        ImageNode node = new ImageNode(imageFileName, cursor);
+        // in a reversed list, the images after a node are the nodes before it
+        if (reversed)
+            place = place == null ? tail : place.getPrevious();
 
-        if (cursor == head)    //add as the head
+        index.insertTree(place == null ? 0 : index.indexOf(place) + 1, segment.tree);
+        linkAfter(place, segment.first, segment.last);
+        size += segment.size;
+        return segment;
+    }
+
+    /**
+     * Links a new node after a node of the list and indexes it.
+     */
+    private void linkNodeAfter(ImageNode place, ImageNode node) {
+        index.insert(index.indexOf(place) + 1, node);
+        place.insertAfter(node);
+
+        if (place == tail)    //added as the tail
+            tail = node;
+    }
+
+    /**
+     * Links a new node before a node of the list and indexes it.
+     */
+    private void linkNodeBefore(ImageNode place, ImageNode node) {
+        node.setNext(place);
+        index.insert(index.indexOf(place), node);
+
+        if (place == head) {   //add as the head
+            head.setPrevious(node);
             head = node;
-        else if (cursor != head) 
-            head.insertBefore(node, cursor);
+        }
+        else 
+            head.insertBefore(node, place);
+    }
+
+    /**
+     * Returns the first node in the order of the list. The caller holds a lock.
+     */
+    private ImageNode first() {
+        return reversed ? tail : head;
+    }
+
+    /**
+     * Returns the last node in the order of the list. The caller holds a lock.
+     */
+    private ImageNode last() {
+        return reversed ? head : tail;
+    }
+
+    /**
+     * Returns the node at a position of the list. The caller holds a lock.
+     */
+    private ImageNode nodeAt(int position) {
+        return index.get(reversed ? size - 1 - position : position);
+    }
+
+    /**
+     * Returns the position of a node in the list. The caller holds a lock.
+     */
+    private int positionOf(ImageNode node) {
+        int position = index.indexOf(node);
+        return reversed ? size - 1 - position : position;
+    }
+
+    /**
+     * Links a segment of nodes after a node of the list, or at the start of the list.
+     *
+     * @param place the node after which the segment is linked, or null to link it at the start
+     * @param first the first node of the segment
+     * @param last the last node of the segment
+     */
+    private void linkAfter(ImageNode place, ImageNode first, ImageNode last) {
+        ImageNode after = place == null ? head : place.getNext();
+
+        first.setPrevious(place);
+        if (place == null)
+            head = first;
+        else
+            place.setNext(first);
+
+        last.setNext(after);
+        if (after == null)
+            tail = last;
+        else
+            after.setPrevious(last);
+    }
+
+    /**
+     * Unlinks a segment of nodes from the list, joining the nodes before and after it.
+     *
+     * @param first the first node of the segment
+     * @param last the last node of the segment
+     */
+    private void unlink(ImageNode first, ImageNode last) {
+        ImageNode before = first.getPrevious();
+        ImageNode after = last.getNext();
 
-        cursor = head.nodeBefore(cursor);
+        if (before == null)
+            head = after;
+        else
+            before.setNext(after);
 
+        if (after == null)
+            tail = before;
+        else
+            after.setPrevious(before);
+
+        first.setPrevious(null);
+        last.setNext(null);
+    }
+
+    /**
+     * Returns the ranges of positions of the images in some files or directories, e.g., to remove them with 'removeRange'.
+     *
+     * Walks the whole list once, in O(n) time. Only the file names of images in one of the directories of the given files
+     * are compared, so that the file names of most images are not even assembled.
+     *
+     * @param fileNames the file names of the images to find
+     * @param directories directories whose images, including the images in their subdirectories, are found as well;
+     *                    each one including its trailing separator
+     * @return the ranges in ascending order, as pairs of the first position and the position after the last one
+     */
+    public List<int[]> rangesOf(Set<String> fileNames, Collection<String> directories) {
+        Set<String> fileDirectories = new HashSet<String>();
+        for (String fileName : fileNames) {
+            fileDirectories.add(fileName.substring(0, DirectoryTable.directoryLength(fileName)));
+        }
+
+        List<int[]> ranges = new ArrayList<int[]>();
+        lock.readLock().lock();
+        try {
+            int position = 0;
+            int from = -1;
+            for (ImageNode node = first(); node != null; node = getNext(node), position++) {
+                boolean found = fileDirectories.contains(node.getDirectory()) && fileNames.contains(node.getFileName());
+                for (Iterator<String> directory = directories.iterator(); !found && directory.hasNext(); ) {
+                    found = node.getDirectory().startsWith(directory.next());
+                }
+
+                if (found && from < 0)
+                    from = position;
+                else if (!found && from >= 0) {
+                    ranges.add(new int[] {from, position});
+                    from = -1;
+                }
+            }
+            if (from >= 0)
+                ranges.add(new int[] {from, position});
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ranges;
+    }
+
+    /**
+     * Returns the file names of the images in some directories, including the images in their subdirectories.
+     *
+     * Walks the whole list once, in O(n) time; only the file names of the images in the directories are assembled.
+     *
+     * @param directories the directories, each one including its trailing separator
+     */
+    public Set<String> fileNamesIn(Collection<String> directories) {
+        Set<String> fileNames = new HashSet<String>();
+        lock.readLock().lock();
+        try {
+            for (ImageNode node = first(); node != null; node = getNext(node)) {
+                for (String directory : directories) {
+                    if (node.getDirectory().startsWith(directory)) {
+                        fileNames.add(node.getFileName());
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return fileNames;
     }
 
     /**
      * Removes all images.
-     *   
+     *
      * For the core part of the assignment.
      */
     public void removeAll() {
-        cursor = head = null;
+        lock.writeLock().lock();
+        try {
+            cursor = head = tail = null;
+            index.clear();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -206,99 +945,327 @@ public class Images
      */
 
     public void remove() {
-        if (head == null)
-            return;
+        lock.writeLock().lock();
+        try {
+            if (head == null)
+                return;
+
+            index.remove(cursor);
+            ImageNode after = getNext(cursor);
+            ImageNode before = getPrevious(cursor);
+
+            if (cursor == head) {
+                head = head.getNext();
 
-        if (cursor == head) {
-            head = head.getNext();
-            cursor = head;
-        }            
-        else {
-            ImageNode place = head.nodeBefore(cursor);
-            cursor.removeNodeUsingPrevious(place);
+                if (head != null)
+                    head.setPrevious(null);
+                else
+                    tail = null;
+            }            
+            else {
+                ImageNode place = cursor.getPrevious();
+                cursor.removeNodeUsingPrevious(place);
 
-            if (cursor.getNext()!= null)
-                cursor = cursor.getNext();
-            else 
-                cursor = place;
+                if (cursor.getNext() == null)
+                    tail = place;
+            }
+
+            // the cursor moves to the image after the removed one, or to the one before it at the end of the list
+            cursor = after != null ? after : before;
+            size--;
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     /**
-     * Reverses the list of images.
+     * Adds an image at the given position, so that the images from that position on move one position further.
      * 
-     * Can be called from outside this class, and then switches between using the 
-     * iterative or recursive private implementations of the method depending on the value of a boolean field in the 
-     * SlideshowApp class.
+     * The cursor is positioned at the new image, as after 'addImageAfter' and 'addImageBefore'.
+     * Does nothing, if the position is neither in the list nor directly after its end.
+     * 
+     * @param position the position of the new image, from 0 to count()
+     * @param imageFileName the file name of the image to be added
      */
+    public void addImageAt(int position, String imageFileName) {
+        lock.writeLock().lock();
+        try {
+            if (position < 0 || position > size)
+                return;
 
-    public void reverseImages() {
-        if (SlideshowApp.isRecursive) {
-            reverseRec();
-        } else {
-            reverseIter();
+            if (position == size) {
+                cursor = last();
+                addImageAfter(imageFileName);
+            }
+            else {
+                cursor = nodeAt(position);
+                addImageBefore(imageFileName);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     /**
-     * Reverses the order of the image list iteratively, so that the last node is now the first node, and 
-     * and the second-to-last node is the second node, and so on
+     * Removes the image at the given position.
      * 
-     * For the challenge part of the assignment.
+     * If that image is at the cursor, the cursor moves as after 'remove'. Otherwise, the cursor stays at its image.
+     * Does nothing, if there is no image at that position.
      * 
-     * HINT: Make sure there is something worth reversing first.
-     * HINT: You will have to use temporary variables.
-     * HINT: Don't forget to update the head of the list.
+     * @param position the position of the image to be removed
      */
-    private void reverseIter() {
-        if (head == null)
-            return;
+    public void removeAt(int position) {
+        lock.writeLock().lock();
+        try {
+            if (position < 0 || position >= size)
+                return;
 
-        ImageNode tempCur = getCursor();
-        
-        ImageNode second = head.getNext();
+            ImageNode node = nodeAt(position);
+            if (node == cursor) {
+                remove();
+                return;
+            }
 
-        //store third node before we change 
-        ImageNode third = second.getNext();  
+            ImageNode savedCursor = cursor;
+            cursor = node;
+            remove();
+            cursor = savedCursor;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-        //Second's next pointer
-        second.setNext(head);  //second now points to head
-        head.setNext(null);  //change head pointer to NULL
+    /**
+     * Reverses the list of images.
+     * 
+     * Takes constant time whatever the strategy: the nodes and the positional index stay as they are,
+     * and only the orientation in which the list reads them is switched (see the class comment).
+     * The cursor keeps pointing at the same image.
+     */
 
-        //only two nodes, which we already reversed
-        if (third == null)
-            return;  
+    public void reverseImages() {
+        lock.writeLock().lock();
+        try {
+            reversed = !reversed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-        cursor = third;
-        ImageNode previousNode = second;
+    /**
+     * A read-only cursor that refers to an image node of this list.
+     */
+    private class ReadCursor implements PlaylistCursor {
 
-        while (cursor != null) { 
-            ImageNode nextNode = cursor.getNext();
-            cursor.setNext(previousNode);
+        // the node at this cursor, or null if this cursor is not positioned
+        private ImageNode node;
 
-            /* reset the PreviousNode and CurrentNode */
-            previousNode = cursor;
-            cursor = nextNode;  
+        // the position of the node when this cursor last moved, from which it continues if the node is removed
+        private int position = -1;
+
+        public boolean moveToCursor() {
+            lock.readLock().lock();
+            try {
+                return moveToNode(cursor, cursor == null ? -1 : positionOf(cursor));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public boolean moveToStart() {
+            lock.readLock().lock();
+            try {
+                return moveToNode(first(), 0);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public boolean moveTo(int newPosition) {
+            lock.readLock().lock();
+            try {
+                if (newPosition < 0 || newPosition >= size)
+                    return false;
+                return moveToNode(nodeAt(newPosition), newPosition);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public boolean moveRight() {
+            lock.readLock().lock();
+            try {
+                // the node now at the old position of a removed node is the one that followed it
+                if (node != null && !index.contains(node) && position >= 0 && position < size)
+                    return moveToNode(nodeAt(position), position);
+
+                if (!revalidate() || getNext(node) == null)
+                    return false;
+                return moveToNode(getNext(node), position + 1);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public boolean moveLeft() {
+            lock.readLock().lock();
+            try {
+                if (!revalidate() || getPrevious(node) == null)
+                    return false;
+                return moveToNode(getPrevious(node), position - 1);
+            } finally {
+                lock.readLock().unlock();
+            }
         }
 
-        cursor = tempCur;
-        head  = previousNode; //reset the head node
-        
+        public String getFileName() {
+            lock.readLock().lock();
+            try {
+                return revalidate() ? node.getFileName() : "";
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public int index() {
+            lock.readLock().lock();
+            try {
+                return revalidate() ? (position = positionOf(node)) : -1;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Positions this cursor at a node, or makes it not positioned if the node is null.
+         *
+         * @return true, unless the node is null
+         */
+        private boolean moveToNode(ImageNode newNode, int newPosition) {
+            if (newNode == null)
+                return false;
+
+            node = newNode;
+            position = newPosition;
+            return true;
+        }
+
+        /**
+         * Makes sure that the node of this cursor is part of the list, moving to the node now at its old position if it was removed.
+         *
+         * @return true, if this cursor is positioned
+         */
+        private boolean revalidate() {
+            if (node == null || index.contains(node))
+                return node != null;
+
+            node = size == 0 ? null : nodeAt(Math.max(0, Math.min(position, size - 1)));
+            return node != null;
+        }
     }
 
     /**
-     * Reverses the order of this linked list by calling a recursive function, so that the last node is now the first node, and 
-     * and the second-to-last node is the second node, and so on
-     * 
-     * For the challenge part of the assignment.
-     * 
-     * HINT: Make sure there is something worth reversing first.
-     * HINT: Delegate the work to a recursive method in class ImageNode.
-     * HINT: Make sure that head has the correct value afterwards.
+     * A chain of linked image nodes together with their index tree, ready to be attached to a list.
+     * Like a list, a segment may hold its images in the reverse order of its nodes.
      */
-    private void reverseRec() {
-        if (head == null)
-            return;
-        head = head.reverseUsingPrevious(head);
+    private static class Segment {
+        final ImageNode first;
+        final ImageNode last;
+        final ImageNode tree;
+        final int size;
+        final boolean reversed;
+
+        /**
+         * Creates the nodes of the given images, linked and indexed in the order of the collection.
+         */
+        Segment(Collection<String> imageFileNames) {
+            ImageNode firstNode = null;
+            ImageNode lastNode = null;
+            int count = 0;
+
+            for (String imageFileName : imageFileNames) {
+                ImageNode node = new ImageNode(imageFileName, null);
+                if (firstNode == null)
+                    firstNode = node;
+                else {
+                    lastNode.setNext(node);
+                    node.setPrevious(lastNode);
+                }
+                lastNode = node;
+                count++;
+            }
+
+            first = firstNode;
+            last = lastNode;
+            tree = ImageIndex.buildTree(firstNode);
+            size = count;
+            reversed = false;
+        }
+
+        /**
+         * Creates the nodes of the given images from the parts of their file names, linked and indexed in their order.
+         */
+        Segment(List<String> directories, List<byte[]> names) {
+            ImageNode firstNode = null;
+            ImageNode lastNode = null;
+
+            for (int i = 0; i < names.size(); i++) {
+                ImageNode node = new ImageNode(directories.get(i), names.get(i), null);
+                if (firstNode == null)
+                    firstNode = node;
+                else {
+                    lastNode.setNext(node);
+                    node.setPrevious(lastNode);
+                }
+                lastNode = node;
+            }
+
+            first = firstNode;
+            last = lastNode;
+            tree = ImageIndex.buildTree(firstNode);
+            size = names.size();
+            reversed = false;
+        }
+
+        Segment(ImageNode first, ImageNode last, ImageNode tree, int size, boolean reversed) {
+            this.first = first;
+            this.last = last;
+            this.tree = tree;
+            this.size = size;
+            this.reversed = reversed;
+        }
+
+        /**
+         * Returns the node of the first image.
+         */
+        ImageNode firstImage() {
+            return reversed ? last : first;
+        }
+
+        /**
+         * Returns the node of the last image.
+         */
+        ImageNode lastImage() {
+            return reversed ? first : last;
+        }
+
+        /**
+         * Returns the segment with its nodes relinked and indexed in the reverse order, for the same order of images.
+         * Takes O(k) time; this segment must not be used afterwards.
+         */
+        Segment reverse() {
+            // swap the successor and predecessor links of every node
+            ImageNode node = first;
+            while (node != null) {
+                ImageNode nextNode = node.getNext();
+                node.setNext(node.getPrevious());
+                node.setPrevious(nextNode);
+                node = nextNode;
+            }
+            if (Metrics.ENABLED)
+                Metrics.walked(Metrics.Walk.REVERSE, size);
+
+            return new Segment(last, first, ImageIndex.buildTree(last), size, !reversed);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,673 @@
+/**
+ * A micro-benchmark for the list operations of class Images.
+ *
+ * For a range of list sizes, it measures the average time of moving the cursor left, moving it to the end,
+ * adding an image before the cursor, and removing the image at the cursor.
+ * With a doubly linked list, the time per operation should not grow with the size of the list.
+ *
+ * Run with: java -cp .:ecs100.jar ImagesBenchmark
+ *
+ * With the argument 'stress', it instead checks that walking and reversing a list of a million images
+ * completes with the default strategy on a normal thread stack.
+ *
+ * With the argument 'index', it compares jumping to a random position with 'moveCursorTo' against
+ * walking there from the start with 'moveCursorRight', and finding the position of the cursor with 'indexOfCursor'
+ * against counting the steps from the start.
+ *
+ * With the argument 'ingest', it compares appending images in batches with 'appendAll' against adding them
+ * one at a time with 'addImageAfter'. A directory given as second argument is then scanned with class ImageScanner.
+ *
+ * With the argument 'playlist', it writes a playlist file of PLAYLIST_SIZE entries and compares viewing it
+ * with a StreamingPlaylist against loading it into Images: the time until the first image can be shown,
+ * the time until all entries are known, and the heap in use afterwards.
+ *
+ * With the argument 'startup', it saves a list of STARTUP_SIZE images as a binary playlist file and measures
+ * the startup time: opening the file as a MappedPlaylist and showing its saved image, and loading it into Images.
+ *
+ * With the argument 'footprint', it measures the heap in use by a list of FOOTPRINT_SIZE images, and compares it
+ * with the heap in use by the same file names as one String each, which is how image nodes used to store them.
+ *
+ * With the argument 'concurrent', it plays a slideshow over a list with a SlideshowScheduler while writer threads keep adding,
+ * removing and moving images, and a render thread keeps walking the images around the cursor as the creator does.
+ * Afterwards, it checks that the links, the index and the size counter of the list agree, and reports how long
+ * slides and walks took at most while the list was being changed.
+ *
+ * With the argument 'undo', it makes UNDO_EDITS random removals and moves on a list of UNDO_SIZE images through an EditHistory,
+ * undoes and redoes all of them, and reports the time per edit, undo and redo and the growth of the heap.
+ *
+ * @version 17 October 2026
+ */
+public class ImagesBenchmark {
+
+    // list sizes to measure
+    private static final int[] SIZES = {1000, 10000, 100000};
+
+    // number of operations timed per measurement
+    private static final int OPERATIONS = 1000;
+
+    // number of untimed rounds to let the JIT compiler settle
+    private static final int WARMUP_ROUNDS = 3;
+
+    // number of images used by the stress run
+    private static final int STRESS_SIZE = 1000000;
+
+    // list sizes and number of lookups for the index comparison
+    private static final int[] INDEX_SIZES = {1000, 10000, 100000, 1000000};
+    private static final int LOOKUPS = 200;
+
+    // list sizes used by the ingest comparison
+    private static final int[] INGEST_SIZES = {100000, 1000000};
+
+    // number of entries in the playlist file of the playlist comparison
+    private static final int PLAYLIST_SIZE = 2000000;
+
+    // number of images in the list of the startup measurement, and the number of directories they are spread over
+    private static final int STARTUP_SIZE = 1000000;
+    private static final int STARTUP_DIRECTORIES = 1000;
+
+    // number of images in the list of the footprint measurement, and the number of directories they are spread over
+    private static final int FOOTPRINT_SIZE = 1000000;
+    private static final int FOOTPRINT_DIRECTORIES = 1000;
+
+    // initial list size, number of writer threads and duration of the concurrent stress run
+    private static final int CONCURRENT_SIZE = 100000;
+    private static final int CONCURRENT_WRITERS = 2;
+    private static final long CONCURRENT_MILLIS = 3000;
+
+    // list size and number of edits of the undo measurement
+    private static final int UNDO_SIZE = 1000000;
+    private static final int UNDO_EDITS = 1000;
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("stress")) {
+            stress();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("index")) {
+            compareIndex();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("startup")) {
+            measureStartup();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("concurrent")) {
+            stressConcurrent();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("undo")) {
+            measureUndo();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("footprint")) {
+            measureFootprint();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("playlist")) {
+            comparePlaylist();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("ingest")) {
+            compareIngest(args.length > 1 ? args[1] : null);
+            return;
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int size : SIZES) {
+                measure(size);
+            }
+        }
+
+        System.out.println("size\tmoveCursorLeft\tmoveCursorToEnd\taddImageBefore\tremove   (ns/op)");
+        for (int size : SIZES) {
+            double[] result = measure(size);
+            System.out.printf("%d\t%.1f\t%.1f\t%.1f\t%.1f%n", size, result[0], result[1], result[2], result[3]);
+        }
+    }
+
+    /**
+     * Measures the operations on a list of the given size.
+     *
+     * @return the average time per operation in nanoseconds, in the order printed by 'main'
+     */
+    private static double[] measure(int size) {
+        Images images = createImages(size);
+        double[] result = new double[4];
+
+        // move left from the end of the list
+        images.moveCursorToEnd();
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            images.moveCursorLeft();
+        }
+        result[0] = (System.nanoTime() - start) / (double) OPERATIONS;
+
+        // move to the end from the start of the list
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            images.moveCursorToStart();
+            images.moveCursorToEnd();
+        }
+        result[1] = (System.nanoTime() - start) / (double) OPERATIONS;
+
+        // insert and remove near the end of the list
+        images.moveCursorToEnd();
+        images.moveCursorLeft();
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            images.addImageBefore("image" + i + ".jpg");
+        }
+        result[2] = (System.nanoTime() - start) / (double) OPERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            images.remove();
+        }
+        result[3] = (System.nanoTime() - start) / (double) OPERATIONS;
+
+        return result;
+    }
+
+    /**
+     * Compares positional access through the index with walking the list, for the sizes in INDEX_SIZES.
+     */
+    private static void compareIndex() {
+        System.out.println("size\tmoveCursorTo\twalk\tindexOfCursor\tcount steps   (ns/op)");
+
+        for (int size : INDEX_SIZES) {
+            Images images = createImages(size);
+            java.util.Random random = new java.util.Random(size);
+            int[] positions = new int[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                positions[i] = random.nextInt(size);
+            }
+
+            // the first round warms up, the second is reported
+            double[] result = new double[4];
+            for (int round = 0; round < 2; round++) {
+                long start = System.nanoTime();
+                for (int position : positions) {
+                    images.moveCursorTo(position);
+                }
+                result[0] = (System.nanoTime() - start) / (double) LOOKUPS;
+
+                start = System.nanoTime();
+                for (int position : positions) {
+                    images.moveCursorToStart();
+                    for (int step = 0; step < position; step++) {
+                        images.moveCursorRight();
+                    }
+                }
+                result[1] = (System.nanoTime() - start) / (double) LOOKUPS;
+
+                long checksum = 0;
+                start = System.nanoTime();
+                for (int position : positions) {
+                    images.moveCursorTo(position);
+                    checksum += images.indexOfCursor();
+                }
+                result[2] = (System.nanoTime() - start) / (double) LOOKUPS;
+
+                start = System.nanoTime();
+                for (int position : positions) {
+                    images.moveCursorTo(position);
+                    ImageNode target = images.getCursor();
+                    images.moveCursorToStart();
+                    int steps = 0;
+                    while (images.getCursor() != target) {
+                        images.moveCursorRight();
+                        steps++;
+                    }
+                    checksum -= steps;
+                }
+                result[3] = (System.nanoTime() - start) / (double) LOOKUPS;
+
+                check(checksum == 0, "index and walk disagree");
+            }
+
+            System.out.printf("%d\t%.1f\t%.1f\t%.1f\t%.1f%n", size, result[0], result[1], result[2], result[3]);
+        }
+    }
+
+    /**
+     * Compares appending images in batches against adding them one at a time, for the sizes in INGEST_SIZES,
+     * and scans a directory, if one is given.
+     *
+     * @param directory the directory to scan, or null
+     */
+    private static void compareIngest(String directory) {
+        System.out.println("size	appendAll	addImageAfter   (ms)");
+
+        for (int size : INGEST_SIZES) {
+            java.util.List<String> fileNames = new java.util.ArrayList<String>(size);
+            for (int i = 0; i < size; i++) {
+                fileNames.add("image" + i + ".jpg");
+            }
+
+            // the first round warms up, the second is reported
+            double[] result = new double[2];
+            for (int round = 0; round < 2; round++) {
+                // collect the lists of the previous round, so that neither measurement pays for them
+                System.gc();
+                long start = System.nanoTime();
+                Images appended = new Images();
+                for (int from = 0; from < size; from += ImageScanner.BATCH_SIZE) {
+                    appended.appendAll(fileNames.subList(from, Math.min(size, from + ImageScanner.BATCH_SIZE)));
+                }
+                result[0] = (System.nanoTime() - start) / 1e6;
+
+                System.gc();
+                start = System.nanoTime();
+                Images added = new Images();
+                for (String fileName : fileNames) {
+                    added.addImageAfter(fileName);
+                }
+                result[1] = (System.nanoTime() - start) / 1e6;
+
+                check(appended.countByWalking() == size && added.countByWalking() == size, "ingested list has the wrong length");
+                appended.moveCursorTo(size / 2);
+                check(appended.getImageFileNameAtCursor().equals(fileNames.get(size / 2)), "appended list is in the wrong order");
+            }
+
+            System.out.printf("%d\t%.1f\t%.1f%n", size, result[0], result[1]);
+        }
+
+        if (directory == null)
+            return;
+
+        try {
+            Images images = new Images();
+            long start = System.nanoTime();
+            final int[] files = new int[1];
+            int found = new ImageScanner().scan(java.nio.file.Paths.get(directory), images, new ImageScanner.Listener() {
+                public void progress(int filesScanned, int imagesAdded) {
+                    files[0] = filesScanned;
+                }
+            });
+            double millis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("scanned %d files in %.1f ms, found %d images%n", files[0], millis, found);
+        } catch (java.io.IOException e) {
+            System.out.println("could not scan " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compares a StreamingPlaylist with Images loaded from the same playlist file of PLAYLIST_SIZE entries.
+     */
+    private static void comparePlaylist() {
+        try {
+            java.nio.file.Path file = java.nio.file.Files.createTempFile("benchmark", ".m3u");
+            file.toFile().deleteOnExit();
+            try (java.io.PrintWriter out = new java.io.PrintWriter(java.nio.file.Files.newBufferedWriter(file))) {
+                out.println("#EXTM3U");
+                for (int i = 0; i < PLAYLIST_SIZE; i++) {
+                    out.println("photos/archive/image" + i + ".jpg");
+                }
+            }
+
+            System.out.println("\tfirst image (ms)\tall entries (ms)\theap in use (MB)");
+
+            long baseline = usedHeap();
+            long start = System.nanoTime();
+            StreamingPlaylist streaming = new StreamingPlaylist(file);
+            streaming.moveCursorToStart();
+            double first = (System.nanoTime() - start) / 1e6;
+            streaming.moveCursorTo(PLAYLIST_SIZE / 2);     // makes a page in the middle resident
+            while (!streaming.isComplete()) {
+                Thread.sleep(1);
+            }
+            double all = (System.nanoTime() - start) / 1e6;
+            streaming.moveCursorTo(PLAYLIST_SIZE - 1);
+            check(streaming.getImageFileNameAtCursor().endsWith("image" + (PLAYLIST_SIZE - 1) + ".jpg"), "streaming playlist has the wrong last image");
+            System.out.printf("StreamingPlaylist\t%.1f\t%.1f\t%.2f%n", first, all, (usedHeap() - baseline) / 1e6);
+            streaming.close();
+            streaming = null;
+
+            baseline = usedHeap();
+            start = System.nanoTime();
+            Images images = new Images();
+            java.nio.file.Path directory = file.toAbsolutePath().getParent();
+            java.util.List<String> batch = new java.util.ArrayList<String>();
+            try (java.io.BufferedReader in = java.nio.file.Files.newBufferedReader(file)) {
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    if (!line.isEmpty() && !line.startsWith("#"))
+                        batch.add(directory.resolve(line).toString());
+                }
+            }
+            images.appendAll(batch);
+            batch = null;
+            all = (System.nanoTime() - start) / 1e6;
+            check(images.count() == PLAYLIST_SIZE, "loaded list has the wrong length");
+            // the list can only be shown after the whole file has been loaded
+            System.out.printf("Images\t%.1f\t%.1f\t%.2f%n", all, all, (usedHeap() - baseline) / 1e6);
+        } catch (Exception e) {
+            System.out.println("playlist comparison failed: " + e);
+        }
+    }
+
+    /**
+     * Measures the startup time with a binary playlist file of STARTUP_SIZE images, reporting the best of five runs.
+     */
+    private static void measureStartup() {
+        try {
+            java.util.List<String> fileNames = new java.util.ArrayList<String>(STARTUP_SIZE);
+            long textBytes = 0;
+            for (int i = 0; i < STARTUP_SIZE; i++) {
+                String fileName = "/home/user/Pictures/archive/album" + (i % STARTUP_DIRECTORIES) + "/IMG_" + i + ".jpg";
+                fileNames.add(fileName);
+                textBytes += fileName.length() + 1;
+            }
+            Images images = new Images();
+            images.appendAll(fileNames);
+            images.moveCursorTo(STARTUP_SIZE / 3);
+
+            java.nio.file.Path file = java.nio.file.Files.createTempFile("benchmark", ".playlist");
+            file.toFile().deleteOnExit();
+            long start = System.nanoTime();
+            PlaylistFile.write(images, file);
+            double save = (System.nanoTime() - start) / 1e6;
+            System.out.printf("saved %d images in %.1f ms: %.1f MB, as text %.1f MB%n",
+                              STARTUP_SIZE, save, java.nio.file.Files.size(file) / 1e6, textBytes / 1e6);
+
+            double open = Double.MAX_VALUE;
+            double load = Double.MAX_VALUE;
+            for (int run = 0; run < 5; run++) {
+                start = System.nanoTime();
+                MappedPlaylist mapped = new MappedPlaylist(file);
+                String shown = mapped.getImageFileNameAtCursor();
+                open = Math.min(open, (System.nanoTime() - start) / 1e6);
+                check(shown.equals(fileNames.get(STARTUP_SIZE / 3)), "mapped playlist shows the wrong image");
+
+                Images loaded = new Images();
+                start = System.nanoTime();
+                PlaylistFile.readInto(file, loaded);
+                load = Math.min(load, (System.nanoTime() - start) / 1e6);
+                check(loaded.count() == STARTUP_SIZE && loaded.indexOfCursor() == STARTUP_SIZE / 3, "loaded list is wrong");
+            }
+
+            System.out.printf("open as MappedPlaylist and show saved image: %.2f ms%n", open);
+            System.out.printf("load into Images: %.1f ms%n", load);
+        } catch (java.io.IOException e) {
+            System.out.println("startup measurement failed: " + e);
+        }
+    }
+
+    /**
+     * Measures the heap in use by a list of FOOTPRINT_SIZE images in FOOTPRINT_DIRECTORIES directories.
+     */
+    private static void measureFootprint() {
+        long baseline = usedHeap();
+        Images images = new Images();
+        java.util.List<String> batch = new java.util.ArrayList<String>();
+        for (int i = 0; i < FOOTPRINT_SIZE; i++) {
+            batch.add("/home/user/Pictures/archive/album" + (i / (FOOTPRINT_SIZE / FOOTPRINT_DIRECTORIES)) + "/IMG_" + i + ".jpg");
+            if (batch.size() == 4096 || i == FOOTPRINT_SIZE - 1) {
+                images.appendAll(batch);
+                batch.clear();
+            }
+        }
+        batch = null;
+        long list = usedHeap() - baseline;
+
+        // the file names as they were stored before, one full String per image
+        baseline = usedHeap();
+        String[] fileNames = new String[FOOTPRINT_SIZE];
+        int position = 0;
+        for (ImageNode node = images.getFirst(); node != null; node = images.getNext(node)) {
+            fileNames[position++] = node.getFileName();
+        }
+        long strings = usedHeap() - baseline - 16 - 4L * FOOTPRINT_SIZE;     // without the array itself
+        check(fileNames[FOOTPRINT_SIZE - 1].endsWith("/IMG_" + (FOOTPRINT_SIZE - 1) + ".jpg"), "list has the wrong last image");
+        // keeps the list reachable until here, so that it is not collected while the Strings are measured
+        check(images.count() == FOOTPRINT_SIZE, "list has the wrong length");
+
+        System.out.printf("Images with %d images in %d directories: %.1f MB, %.1f bytes per image%n",
+                          FOOTPRINT_SIZE, DirectoryTable.size(), list / 1e6, list / (double) FOOTPRINT_SIZE);
+        System.out.printf("the same file names as full Strings: %.1f MB, %.1f bytes per image%n",
+                          strings / 1e6, strings / (double) FOOTPRINT_SIZE);
+    }
+
+    /**
+     * Measures edits, undos and redos through an EditHistory on a list of UNDO_SIZE images.
+     */
+    private static void measureUndo() {
+        Images images = createImages(UNDO_SIZE);
+        String first = images.getImageFileNameAt(0);
+        String last = images.getImageFileNameAt(UNDO_SIZE - 1);
+        EditHistory history = new EditHistory(images, UNDO_EDITS);
+        java.util.Random random = new java.util.Random(42);
+
+        long baseline = usedHeap();
+        long start = System.nanoTime();
+        for (int i = 0; i < UNDO_EDITS; i++) {
+            int count = images.count();
+            int from = random.nextInt(count);
+            int to = Math.min(count, from + 1 + random.nextInt(1000));
+            if (i % 2 == 0)
+                history.remove(from, to);
+            else {
+                int target = random.nextInt(count + 1);
+                if (target > from && target < to)
+                    target = to;
+                history.move(from, to, target);
+            }
+        }
+        double edit = (System.nanoTime() - start) / 1e3 / UNDO_EDITS;
+        long kept = usedHeap() - baseline;
+        int edited = images.count();
+
+        start = System.nanoTime();
+        int undone = 0;
+        while (history.undo()) {
+            undone++;
+        }
+        double undo = (System.nanoTime() - start) / 1e3 / UNDO_EDITS;
+        check(images.count() == UNDO_SIZE && images.getImageFileNameAt(0).equals(first)
+              && images.getImageFileNameAt(UNDO_SIZE - 1).equals(last), "undoing did not restore the list");
+
+        start = System.nanoTime();
+        int redone = 0;
+        while (history.redo()) {
+            redone++;
+        }
+        double redo = (System.nanoTime() - start) / 1e3 / UNDO_EDITS;
+        check(undone == UNDO_EDITS && redone == UNDO_EDITS && images.count() == edited, "redoing did not restore the edited list");
+
+        System.out.printf("%d edits on %d images: %.1f us per edit, %.1f us per undo, %.1f us per redo%n",
+                          UNDO_EDITS, UNDO_SIZE, edit, undo, redo);
+        // the removed images keep the nodes they had in the list, so the heap grows only by the history's own records
+        System.out.printf("heap growth: %.1f MB, while the history keeps %d removed images%n", kept / 1e6, UNDO_SIZE - edited);
+    }
+
+    /**
+     * Returns the number of bytes in use on the heap after a garbage collection.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Walks and reverses a list of STRESS_SIZE images with the default strategy and checks the results.
+     */
+    private static void stress() {
+        Images images = createImages(STRESS_SIZE);
+        check(images.getStrategy() == ListStrategy.ITERATIVE, "default strategy is not iterative");
+
+        check(images.countByWalking() == STRESS_SIZE, "walking count is wrong");
+
+        images.moveCursorToEnd();
+        ImageNode last = images.getCursor();
+        images.moveCursorToStart();
+        ImageNode first = images.getCursor();
+        check(first.nodeBefore(last, images.getStrategy()).getNext() == last, "node before the last node is wrong");
+
+        images.reverseImages();
+        check(images.getImageFileNameAtCursor().equals("image0.jpg"), "reversing moved the cursor");
+        images.moveCursorToStart();
+        check(images.getImageFileNameAtCursor().equals("image" + (STRESS_SIZE - 1) + ".jpg"), "reversed list has the wrong first image");
+        check(images.countByWalking() == STRESS_SIZE, "reversed list has the wrong length");
+        images.checkInvariants();
+
+        System.out.println("stress run with " + STRESS_SIZE + " images passed");
+    }
+
+    /**
+     * Plays a slideshow over a list that writer threads change meanwhile, and checks the list afterwards.
+     */
+    private static void stressConcurrent() {
+        final Images images = createImages(CONCURRENT_SIZE);
+        final java.util.concurrent.atomic.AtomicBoolean running = new java.util.concurrent.atomic.AtomicBoolean(true);
+        final java.util.concurrent.atomic.AtomicLong writes = new java.util.concurrent.atomic.AtomicLong();
+        final java.util.concurrent.atomic.AtomicLong walks = new java.util.concurrent.atomic.AtomicLong();
+        final java.util.concurrent.ConcurrentLinkedQueue<Throwable> failures = new java.util.concurrent.ConcurrentLinkedQueue<Throwable>();
+        final long[] maxSlideNanos = new long[1];
+        final long[] maxWalkNanos = new long[1];
+        final int[] slides = new int[1];
+
+        // the show moves the shared cursor one image further every millisecond
+        final java.util.concurrent.CountDownLatch ended = new java.util.concurrent.CountDownLatch(1);
+        SlideshowScheduler scheduler = new SlideshowScheduler();
+        scheduler.start(new SlideshowScheduler.Listener() {
+            public long showSlide(int slideNumber) {
+                try {
+                    long start = System.nanoTime();
+                    int before = images.indexOfCursor();
+                    images.moveCursorRight();
+                    if (images.indexOfCursor() == before)
+                        images.moveCursorToStart();
+                    check(!images.getImageFileNameAtCursor().isEmpty(), "show found no image at the cursor");
+                    maxSlideNanos[0] = Math.max(maxSlideNanos[0], System.nanoTime() - start);
+                    slides[0]++;
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+                return running.get() ? 1 : -1;
+            }
+
+            public void showEnded() {
+                ended.countDown();
+            }
+        });
+
+        // the render thread walks the images around the cursor with a cursor of its own
+        Thread render = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    PlaylistCursor window = images.newCursor();
+                    while (running.get()) {
+                        long start = System.nanoTime();
+                        check(window.moveToCursor(), "render walk found no cursor");
+                        int steps = 0;
+                        while (steps < 5 && window.moveLeft()) {
+                            steps++;
+                        }
+                        for (int i = 0; i < 10 && window.moveRight(); i++) {
+                            check(!window.getFileName().isEmpty(), "render walk found no image");
+                        }
+                        maxWalkNanos[0] = Math.max(maxWalkNanos[0], System.nanoTime() - start);
+                        walks.incrementAndGet();
+                        Thread.sleep(1);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }
+        });
+        render.start();
+
+        // the writers change the list at random positions, keeping its size around CONCURRENT_SIZE
+        Thread[] writers = new Thread[CONCURRENT_WRITERS];
+        for (int w = 0; w < writers.length; w++) {
+            final java.util.Random random = new java.util.Random(w);
+            writers[w] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        int id = 0;
+                        while (running.get()) {
+                            int count = images.count();
+                            int position = random.nextInt(count);
+                            switch (random.nextInt(5)) {
+                                case 0:
+                                    java.util.List<String> batch = new java.util.ArrayList<String>();
+                                    for (int i = random.nextInt(100); i >= 0; i--) {
+                                        batch.add("dir" + random.nextInt(10) + "/added" + (id++) + ".jpg");
+                                    }
+                                    images.appendAll(batch);
+                                    break;
+                                case 1:
+                                    images.removeRange(position, Math.min(count, position + 1 + random.nextInt(100)));
+                                    break;
+                                case 2:
+                                    images.addImageAt(position, "dir/inserted" + (id++) + ".jpg");
+                                    break;
+                                case 3:
+                                    images.removeAt(position);
+                                    break;
+                                default:
+                                    images.moveRange(position, Math.min(count, position + 1 + random.nextInt(100)), random.nextInt(count + 1));
+                            }
+                            writes.incrementAndGet();
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+            writers[w].start();
+        }
+
+        try {
+            Thread.sleep(CONCURRENT_MILLIS);
+            running.set(false);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            render.join();
+            ended.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Throwable failure : failures) {
+            failure.printStackTrace();
+        }
+        check(failures.isEmpty(), failures.size() + " threads failed");
+
+        // the links, the index and the size counter must agree
+        int position = 0;
+        for (ImageNode node = images.getFirst(); node != null; node = images.getNext(node)) {
+            check(node.getNext() == null || node.getNext().getPrevious() == node, "list has broken links");
+            check(images.getImageFileNameAt(position).equals(node.getFileName()), "index disagrees with the list");
+            position++;
+        }
+        check(position == images.count() && position == images.countByWalking(), "size counter disagrees with the list");
+        images.checkInvariants();
+
+        System.out.printf("%d slides, %d render walks and %d writes in %d ms, list of %d images is consistent%n",
+                          slides[0], walks.get(), writes.get(), CONCURRENT_MILLIS, position);
+        System.out.printf("longest slide step: %.2f ms, longest render walk: %.2f ms%n", maxSlideNanos[0] / 1e6, maxWalkNanos[0] / 1e6);
+    }
+
+    /**
+     * Stops the stress run with a message, if a condition does not hold.
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new IllegalStateException(message);
+    }
+
+    /**
+     * Creates a list with the given number of images.
+     */
+    private static Images createImages(int size) {
+        Images images = new Images();
+        for (int i = 0; i < size; i++) {
+            images.addImageAfter("image" + i + ".jpg");
+        }
+        return images;
+    }
+}
@@ -0,0 +1,297 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * A benchmark suite for the list operations of classes Images and ImageNode, with machine-readable results,
+ * so that runs of different releases can be compared.
+ *
+ * Every operation is measured with both list strategies, for list sizes from 10 to 1,000,000,
+ * and with the cursor at the start, in the middle, and at the end of the list.
+ * Each measurement consists of warmup iterations, whose results are discarded, followed by measured iterations.
+ * An iteration times a batch of consecutive calls (at most as many removals as there are images), starting from the same list state:
+ * operations that change the list get a fresh list per iteration,
+ * and the cursor is put back at its position before each iteration.
+ * The cursor moves of a batch are timed in runs that end where the cursor reaches the end of the list it moves towards;
+ * between the runs, the cursor jumps back to the other end without being timed, so that every timed call moves the cursor
+ * however short the list is.
+ * Reversing takes constant time since the list only switches its orientation, but it stays in the suite,
+ * as it walked the whole list in earlier releases and the results are compared across releases.
+ *
+ * The results are written as CSV with one line per measurement: the operation, strategy, list size, cursor position,
+ * number of calls per iteration, number of measured iterations, and the mean, minimum and maximum time per call in nanoseconds.
+ * Measurements that overflow the stack (recursive strategy on long lists) are written with 'overflow' instead of times.
+ *
+ * Run with: java -cp .:ecs100.jar ImagesBenchmarkSuite [output file] [maximum list size]
+ * The default output file is images-benchmark.csv.
+ *
+ * @version 17 October 2026
+ */
+public class ImagesBenchmarkSuite {
+
+    // the operations that are measured, identified by their index in this array while they are timed;
+    // reverseImages takes constant time now, and is kept for comparison with earlier releases
+    private static final String[] OPERATIONS = {
+        "count", "countByWalking", "moveCursorLeft", "moveCursorRight", "moveCursorToEnd",
+        "addImageBefore", "addImageAfter", "remove", "nodeBefore", "reverseImages"
+    };
+
+    // the cursor positions that are measured
+    private static final String[] POSITIONS = {"start", "middle", "end"};
+
+    // the list sizes that are measured
+    private static final int[] SIZES = {10, 100, 1000, 10000, 100000, 1000000};
+
+    // the number of calls per iteration for operations that take constant or logarithmic time
+    private static final int BATCH = 10000;
+
+    // the minimum time in nanoseconds an iteration of an operation that walks the list should take
+    private static final long MIN_ITERATION_NANOS = 5000000;
+
+    // the number of discarded and measured iterations
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    // receives the results of the timed calls, so that the compiler cannot remove them as unused
+    private static volatile long sink;
+
+    // the stack size of the thread that runs the suite, so that the recursive strategy can be measured on long lists
+    private static final long STACK_SIZE = 1L << 30;
+
+    public static void main(String[] args) throws Exception {
+        final String outputFile = args.length > 0 ? args[0] : "images-benchmark.csv";
+        final int maxSize = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+
+        final Exception[] failure = new Exception[1];
+        Thread runner = new Thread(null, new Runnable() {
+            public void run() {
+                try {
+                    runSuite(outputFile, maxSize);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        }, "benchmark", STACK_SIZE);
+
+        runner.start();
+        runner.join();
+
+        if (failure[0] != null)
+            throw failure[0];
+    }
+
+    /**
+     * Runs all measurements and writes the results.
+     */
+    private static void runSuite(String outputFile, int maxSize) throws IOException {
+        PrintWriter out = new PrintWriter(new FileWriter(outputFile));
+        try {
+            out.println("operation,strategy,size,position,calls,iterations,mean_ns,min_ns,max_ns");
+
+            for (int size : SIZES) {
+                if (size > maxSize)
+                    continue;
+
+                for (ListStrategy strategy : ListStrategy.values()) {
+                    // read-only operations share one list per size and strategy
+                    Images shared = createImages(size, strategy);
+
+                    for (int operation = 0; operation < OPERATIONS.length; operation++) {
+                        for (String position : POSITIONS) {
+                            String line = measure(operation, strategy, size, position, shared);
+                            out.println(line);
+                            out.flush();
+                            System.out.println(line);
+                        }
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Measures one operation in one configuration.
+     *
+     * @param shared a list of the given size and strategy, for operations that do not change the list
+     * @return the CSV line of the result
+     */
+    private static String measure(int operation, ListStrategy strategy, int size, String position, Images shared) {
+        String name = OPERATIONS[operation];
+        boolean changesList = name.startsWith("add") || name.equals("remove");
+        int calls = walksList(name) ? calibrate(operation, shared, size, position) : BATCH;
+        if (name.equals("remove"))      // do not time removing from an empty list
+            calls = Math.min(calls, size);
+
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        double total = 0;
+
+        try {
+            for (int iteration = 0; iteration < WARMUP_ITERATIONS + MEASURED_ITERATIONS; iteration++) {
+                Images images = changesList ? createImages(size, strategy) : shared;
+                int cursorPosition = cursorPosition(size, position);
+                images.moveCursorTo(cursorPosition);
+                ImageNode target = images.getCursor();
+                images.moveCursorToStart();
+                ImageNode first = images.getCursor();
+                images.moveCursorTo(cursorPosition);
+
+                double perCall;
+                if (movesCursor(name))
+                    perCall = timeCursorMoves(operation, images, calls) / (double) calls;
+                else {
+                    int results = 0;
+                    long start = System.nanoTime();
+                    for (int call = 0; call < calls; call++) {
+                        results += invoke(operation, images, first, target, strategy);
+                    }
+                    perCall = (System.nanoTime() - start) / (double) calls;
+                    sink += results;
+                }
+
+                if (iteration >= WARMUP_ITERATIONS) {
+                    min = Math.min(min, perCall);
+                    max = Math.max(max, perCall);
+                    total += perCall;
+                }
+            }
+        } catch (StackOverflowError e) {
+            return String.format(Locale.ROOT, "%s,%s,%d,%s,%d,0,overflow,overflow,overflow", name, strategy, size, position, calls);
+        }
+
+        return String.format(Locale.ROOT, "%s,%s,%d,%s,%d,%d,%.1f,%.1f,%.1f",
+                             name, strategy, size, position, calls, MEASURED_ITERATIONS, total / MEASURED_ITERATIONS, min, max);
+    }
+
+    /**
+     * Calls an operation once.
+     *
+     * @param operation the index of the operation in OPERATIONS
+     * @param first the first node of the list
+     * @param target the node at the measured cursor position
+     * @return a value derived from the result, to be added to 'sink'
+     */
+    private static int invoke(int operation, Images images, ImageNode first, ImageNode target, ListStrategy strategy) {
+        switch (operation) {
+            case 0: return images.count();
+            case 1: return images.countByWalking();
+            case 2: images.moveCursorLeft(); break;
+            case 3: images.moveCursorRight(); break;
+            case 4: images.moveCursorToEnd(); break;
+            case 5: images.addImageBefore("added.jpg"); break;
+            case 6: images.addImageAfter("added.jpg"); break;
+            case 7: images.remove(); break;
+            // the node before the first node is not defined, so the first node looks for its successor's predecessor
+            case 8: return first.nodeBefore(target == first ? first.getNext() : target, strategy).hashCode();
+            case 9: images.reverseImages(); break;
+        }
+        return images.getCursor() == null ? 0 : 1;
+    }
+
+    /**
+     * Returns the time in nanoseconds that a number of moves of the cursor take, all of which move it.
+     *
+     * The moves are timed in runs up to the end of the list the cursor moves towards. Between the runs,
+     * the cursor is put at the other end, which is not timed.
+     */
+    private static long timeCursorMoves(int operation, Images images, int calls) {
+        boolean left = OPERATIONS[operation].equals("moveCursorLeft");
+        if (images.count() < 2)     // the cursor cannot move
+            return 0;
+
+        long nanos = 0;
+        int results = 0;
+
+        for (int done = 0; done < calls; ) {
+            int position = images.indexOfCursor();
+            int run = Math.min(calls - done, left ? position : images.count() - 1 - position);
+            if (run == 0) {
+                if (left)
+                    images.moveCursorToEnd();
+                else
+                    images.moveCursorToStart();
+                continue;
+            }
+
+            long start = System.nanoTime();
+            for (int call = 0; call < run; call++) {
+                results += invoke(operation, images, null, null, images.getStrategy());
+            }
+            nanos += System.nanoTime() - start;
+            done += run;
+        }
+
+        sink += results;
+        return nanos;
+    }
+
+    /**
+     * Returns true for the operations that move the cursor by one image.
+     */
+    private static boolean movesCursor(String operation) {
+        return operation.equals("moveCursorLeft") || operation.equals("moveCursorRight");
+    }
+
+    /**
+     * Returns true for operations whose time grows with the length of the list.
+     */
+    private static boolean walksList(String operation) {
+        return operation.equals("countByWalking") || operation.equals("nodeBefore");
+    }
+
+    /**
+     * Returns the number of calls of a walking operation that take at least MIN_ITERATION_NANOS, but at most BATCH calls.
+     *
+     * Doubles the number of calls until a batch takes long enough, which also warms up the operation.
+     */
+    private static int calibrate(int operation, Images images, int size, String position) {
+        images.moveCursorTo(cursorPosition(size, position));
+        ImageNode target = images.getCursor();
+        images.moveCursorToStart();
+        ImageNode first = images.getCursor();
+        images.moveCursorTo(cursorPosition(size, position));
+
+        int calls = 1;
+        try {
+            while (calls < BATCH) {
+                long start = System.nanoTime();
+                for (int call = 0; call < calls; call++) {
+                    invoke(operation, images, first, target, images.getStrategy());
+                }
+                if (System.nanoTime() - start >= MIN_ITERATION_NANOS)
+                    break;
+                calls *= 2;
+            }
+        } catch (StackOverflowError e) {
+            return 1;
+        }
+
+        return Math.min(calls, BATCH);
+    }
+
+    /**
+     * Returns the index of a named cursor position in a list of the given size.
+     */
+    private static int cursorPosition(int size, String position) {
+        if (position.equals("start"))
+            return 0;
+        if (position.equals("middle"))
+            return size / 2;
+        return size - 1;
+    }
+
+    /**
+     * Creates a list with the given number of images and strategy.
+     */
+    private static Images createImages(int size, ListStrategy strategy) {
+        Images images = new Images();
+        images.setStrategy(strategy);
+        for (int i = 0; i < size; i++) {
+            images.addImageAfter("image" + i + ".jpg");
+        }
+        return images;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * The strategies by which the list algorithms of ImageNode and Images walk the linked list.
+ * 
+ * ITERATIVE runs in constant stack space and is the default. 
+ * RECURSIVE uses one stack frame per node and therefore fails with a StackOverflowError on long lists; 
+ * it is only used when explicitly selected, e.g. with 'Images.setStrategy'.
+ * 
+ * @version 17 October 2026
+ */
+public enum ListStrategy {
+    ITERATIVE,
+    RECURSIVE
+}
@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class MappedPlaylist is a playlist that reads a binary playlist file (see class PlaylistFile) through a memory mapping.
+ *
+ * Opening the playlist maps the file and checks that every offset, length and directory number in it stays within
+ * the file, so that a damaged file is reported when it is opened rather than while it is viewed. This reads the
+ * numbers of the whole file, but decodes no strings.
+ * The file name of an image is decoded from the mapped file whenever it is requested, by following the offset tables,
+ * so no file names are held in memory. The directories are decoded once and then kept.
+ *
+ * The cursor starts at the position saved in the file.
+ *
+ * @version 17 October 2026
+ */
+public class MappedPlaylist implements Playlist {
+
+    private final Path file;
+
+    // the whole file
+    private final MappedByteBuffer buffer;
+
+    // the number of entries and directories
+    private final int count;
+    private final int directoryCount;
+
+    // the offsets of the directory and entry offset tables
+    private final int directoryTable;
+    private final int entryTable;
+
+    // the directories decoded so far, by number
+    private final String[] directories;
+
+    // the position of the cursor, or -1 if the playlist is empty
+    private int cursor;
+
+    /**
+     * Opens a binary playlist file.
+     *
+     * @param file the playlist file
+     * @throws IOException if the file cannot be read, or is not a binary playlist file of the supported version
+     */
+    public MappedPlaylist(Path file) throws IOException {
+        this.file = file;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < PlaylistFile.HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+                throw new IOException(file + " is not a playlist file");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != PlaylistFile.MAGIC)
+            throw new IOException(file + " is not a playlist file");
+        if (buffer.getInt(4) != PlaylistFile.VERSION)
+            throw new IOException(file + " has unsupported version " + buffer.getInt(4));
+
+        count = buffer.getInt(8);
+        directoryCount = buffer.getInt(16);
+        directoryTable = PlaylistFile.HEADER_SIZE;
+        if (count < 0 || directoryCount < 0 || directoryTable + 4L * directoryCount + 4L * count > buffer.capacity())
+            throw new IOException(file + " is damaged");
+        entryTable = directoryTable + 4 * directoryCount;
+
+        for (int number = 0; number < directoryCount; number++) {
+            checkString(buffer.getInt(directoryTable + 4 * number), 0);
+        }
+        for (int position = 0; position < count; position++) {
+            int entry = buffer.getInt(entryTable + 4 * position);
+            checkString(entry, 4);
+            int directory = buffer.getInt(entry);
+            if (directory < 0 || directory >= directoryCount)
+                throw new IOException(file + " is damaged");
+        }
+
+        directories = new String[directoryCount];
+
+        int savedCursor = buffer.getInt(12);
+        cursor = count == 0 ? -1 : Math.max(0, Math.min(count - 1, savedCursor));
+    }
+
+    /**
+     * Returns the playlist file.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns true, as all entries of the file are known when it is opened.
+     */
+    public boolean isComplete() {
+        return true;
+    }
+
+    public synchronized String getImageFileNameAtCursor() {
+        if (cursor < 0)
+            return "";
+
+        return getImageFileNameAt(cursor);
+    }
+
+    /**
+     * Returns the file name of the image at a position, decoding it from the mapped file.
+     *
+     * @param position the position, counting from 0
+     * @return the file name, or null if the position is out of range
+     */
+    public synchronized String getImageFileNameAt(int position) {
+        if (position < 0 || position >= count)
+            return null;
+
+        int entry = buffer.getInt(entryTable + 4 * position);
+        return directory(buffer.getInt(entry)) + string(entry + 4);
+    }
+
+    /**
+     * Returns the directory of the image at a position, including its trailing separator.
+     *
+     * @param position the position, counting from 0
+     * @return the directory, or null if the position is out of range
+     */
+    public synchronized String getDirectoryAt(int position) {
+        if (position < 0 || position >= count)
+            return null;
+
+        return directory(buffer.getInt(buffer.getInt(entryTable + 4 * position)));
+    }
+
+    /**
+     * Returns the name of the image at a position within its directory, as the UTF-8 bytes stored in the file.
+     *
+     * @param position the position, counting from 0
+     * @return the name, or null if the position is out of range
+     */
+    public synchronized byte[] getNameAt(int position) {
+        if (position < 0 || position >= count)
+            return null;
+
+        return bytes(buffer.getInt(entryTable + 4 * position) + 4);
+    }
+
+    public synchronized int indexOfCursor() {
+        return cursor;
+    }
+
+    public synchronized void moveCursorToStart() {
+        if (count > 0)
+            cursor = 0;
+    }
+
+    public synchronized void moveCursorToEnd() {
+        if (count > 0)
+            cursor = count - 1;
+    }
+
+    public synchronized void moveCursorRight() {
+        if (cursor + 1 < count)
+            cursor++;
+    }
+
+    public synchronized void moveCursorLeft() {
+        if (cursor > 0)
+            cursor--;
+    }
+
+    public synchronized void moveCursorTo(int position) {
+        if (position >= 0 && position < count)
+            cursor = position;
+    }
+
+    public PlaylistCursor newCursor() {
+        return new ReadCursor();
+    }
+
+    /**
+     * Returns a directory by its number, decoding it the first time.
+     */
+    private String directory(int number) {
+        if (directories[number] == null)
+            directories[number] = string(buffer.getInt(directoryTable + 4 * number));
+        return directories[number];
+    }
+
+    /**
+     * Checks that a record and the string at its end lie within the mapped file.
+     *
+     * @param offset the offset of the record
+     * @param before the number of bytes in front of the length of the string
+     * @throws IOException if the record or its string extend past the file
+     */
+    private void checkString(int offset, int before) throws IOException {
+        if (offset < 0 || offset + (long) before + 4 > buffer.capacity())
+            throw new IOException(file + " is damaged");
+
+        int length = buffer.getInt(offset + before);
+        if (length < 0 || offset + (long) before + 4 + length > buffer.capacity())
+            throw new IOException(file + " is damaged");
+    }
+
+    /**
+     * Decodes the string stored at an offset of the mapped file, which the constructor has checked.
+     */
+    private String string(int offset) {
+        return new String(bytes(offset), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the bytes of the string stored at an offset of the mapped file, which the constructor has checked.
+     */
+    private byte[] bytes(int offset) {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + 4, bytes);
+        return bytes;
+    }
+
+    /**
+     * A read-only cursor that refers to a position of this playlist.
+     */
+    private class ReadCursor implements PlaylistCursor {
+
+        // the position of this cursor, or -1 if it is not positioned
+        private int position = -1;
+
+        public boolean moveToCursor() {
+            position = indexOfCursor();
+            return position >= 0;
+        }
+
+        public boolean moveToStart() {
+            return moveTo(0);
+        }
+
+        public boolean moveTo(int newPosition) {
+            if (newPosition < 0 || newPosition >= count)
+                return false;
+
+            position = newPosition;
+            return true;
+        }
+
+        public boolean moveRight() {
+            return position >= 0 && moveTo(position + 1);
+        }
+
+        public boolean moveLeft() {
+            return position > 0 && moveTo(position - 1);
+        }
+
+        public String getFileName() {
+            return position < 0 ? "" : getImageFileNameAt(position);
+        }
+
+        public int index() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Class Metrics records where the time of list and render operations goes: how many nodes the walks over the list visit,
+ * how long redraws and decodes take, and how long slide transitions take.
+ *
+ * Metrics are off unless the program is started with -Dslideshow.metrics=true. Every recording call site is guarded
+ * by 'if (Metrics.ENABLED)'; as ENABLED is a constant, the JIT compiler removes the guarded code when metrics are off,
+ * so they cost nothing then. When they are on, a walk adds its visits once at its end rather than once per node,
+ * and all counters are LongAdders, so that threads recording at the same time do not contend.
+ *
+ * The metrics are exported in two ways:
+ * through JMX as the MXBean 'slideshow:type=Metrics' (see interface MetricsMXBean), e.g., for JConsole,
+ * and as JFR events of the category 'Slideshow', which a flight recording started with -XX:StartFlightRecording contains.
+ * Walk events are frequent, so they are disabled in recordings unless enabled in the recording settings.
+ *
+ * @version 17 October 2026
+ */
+public class Metrics {
+
+    // whether metrics are recorded; configured with -Dslideshow.metrics=true
+    public static final boolean ENABLED = Boolean.getBoolean("slideshow.metrics");
+
+    // the name the metrics are exported under through JMX
+    public static final String OBJECT_NAME = "slideshow:type=Metrics";
+
+    /**
+     * The operations that walk over nodes of the list or of its index.
+     */
+    public enum Walk {
+        COUNT("ImageNode.count"),
+        NODE_BEFORE("ImageNode.nodeBefore"),
+        REVERSE("Images.Segment.reverse"),
+        INDEX_GET("ImageIndex.get"),
+        INDEX_OF("ImageIndex.indexOf"),
+        INDEX_BUILD("ImageIndex.buildTree");
+
+        private final String label;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder visits = new LongAdder();
+
+        Walk(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // the timed operations
+    public static final Timer CREATOR_REDRAW = new Timer("SlideshowCreator.redraw");
+    public static final Timer VIEWER_REDRAW = new Timer("SlideshowViewer.redraw");
+    public static final Timer DECODE = new Timer("ImageCache.decode");
+    public static final Timer SLIDE_TRANSITION = new Timer("SlideshowViewer.showSlide");
+
+    // all timers, in the order they are exported
+    private static final Timer[] TIMERS = {CREATOR_REDRAW, VIEWER_REDRAW, DECODE, SLIDE_TRANSITION};
+
+    static {
+        if (ENABLED)
+            export();
+    }
+
+    /**
+     * Records a walk over the given number of nodes.
+     */
+    public static void walked(Walk walk, long visits) {
+        walk.calls.increment();
+        walk.visits.add(visits);
+
+        WalkEvent event = new WalkEvent();
+        if (event.isEnabled()) {
+            event.operation = walk.label;
+            event.visits = visits;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records visits of a walk that is recorded with 'walked' as well, for walks that cannot add up their visits,
+     * i.e., recursive ones.
+     */
+    public static void visited(Walk walk, long visits) {
+        walk.visits.add(visits);
+    }
+
+    /**
+     * Sets all metrics back to zero.
+     */
+    public static void reset() {
+        for (Walk walk : Walk.values()) {
+            walk.calls.reset();
+            walk.visits.reset();
+        }
+        for (Timer timer : TIMERS) {
+            timer.reset();
+        }
+    }
+
+    /**
+     * Returns the number of calls of each walk, by label.
+     */
+    public static Map<String, Long> getCalls() {
+        Map<String, Long> calls = new LinkedHashMap<String, Long>();
+        for (Walk walk : Walk.values()) {
+            calls.put(walk.label, walk.calls.sum());
+        }
+        return calls;
+    }
+
+    /**
+     * Returns the number of nodes visited by each walk, by label.
+     */
+    public static Map<String, Long> getNodeVisits() {
+        Map<String, Long> visits = new LinkedHashMap<String, Long>();
+        for (Walk walk : Walk.values()) {
+            visits.put(walk.label, walk.visits.sum());
+        }
+        return visits;
+    }
+
+    /**
+     * Returns the timers, in the order they are exported.
+     */
+    public static Timer[] getTimers() {
+        return TIMERS.clone();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server and the flight recorder.
+     */
+    private static void export() {
+        FlightRecorder.register(WalkEvent.class);
+        FlightRecorder.register(TimingEvent.class);
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Export(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("metrics are not exported through JMX: " + e);
+        }
+    }
+
+    /**
+     * The metrics as seen through JMX.
+     */
+    private static class Export implements MetricsMXBean {
+        public Map<String, Long> getCalls() {
+            return Metrics.getCalls();
+        }
+
+        public Map<String, Long> getNodeVisits() {
+            return Metrics.getNodeVisits();
+        }
+
+        public Map<String, Long> getTimedCalls() {
+            Map<String, Long> calls = new LinkedHashMap<String, Long>();
+            for (Timer timer : TIMERS) {
+                calls.put(timer.label, timer.getCalls());
+            }
+            return calls;
+        }
+
+        public Map<String, Double> getMeanMillis() {
+            Map<String, Double> means = new LinkedHashMap<String, Double>();
+            for (Timer timer : TIMERS) {
+                long calls = timer.getCalls();
+                means.put(timer.label, calls == 0 ? 0 : timer.getTotalNanos() / 1e6 / calls);
+            }
+            return means;
+        }
+
+        public Map<String, Double> getMaxMillis() {
+            Map<String, Double> maxima = new LinkedHashMap<String, Double>();
+            for (Timer timer : TIMERS) {
+                maxima.put(timer.label, timer.getMaxNanos() / 1e6);
+            }
+            return maxima;
+        }
+
+        public Map<String, Long> getSlideTransitionHistogram() {
+            return SLIDE_TRANSITION.getHistogram();
+        }
+
+        public Map<String, Long> histogram(String operation) {
+            for (Timer timer : TIMERS) {
+                if (timer.label.equals(operation))
+                    return timer.getHistogram();
+            }
+            throw new IllegalArgumentException("no timer for " + operation);
+        }
+
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+
+    /**
+     * Class Timer records how long an operation takes: the number of calls, the total and the longest time,
+     * and a histogram of the times.
+     *
+     * The histogram has a bucket per power of two microseconds: bucket i counts the times from 2^(i-1) up to 2^i microseconds,
+     * bucket 0 the times up to 1 microsecond, and the last bucket all longer times.
+     */
+    public static class Timer {
+
+        // the number of buckets of the histogram; the last one holds times from about 17 seconds on
+        public static final int BUCKETS = 26;
+
+        private final String label;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        Timer(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Records a call of the operation that started at the given System.nanoTime.
+         */
+        public void record(long startNanos) {
+            long elapsed = System.nanoTime() - startNanos;
+
+            calls.increment();
+            totalNanos.add(elapsed);
+            long max = maxNanos.get();
+            while (elapsed > max && !maxNanos.compareAndSet(max, elapsed)) {
+                max = maxNanos.get();
+            }
+            histogram.incrementAndGet(bucket(elapsed));
+
+            TimingEvent event = new TimingEvent();
+            if (event.isEnabled()) {
+                event.operation = label;
+                event.elapsed = elapsed;
+                event.commit();
+            }
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * Returns the number of recorded times in each bucket of the histogram, by the upper bound of the bucket.
+         * Empty buckets after the last bucket in use are left out.
+         */
+        public Map<String, Long> getHistogram() {
+            int used = BUCKETS;
+            while (used > 0 && histogram.get(used - 1) == 0) {
+                used--;
+            }
+
+            Map<String, Long> buckets = new LinkedHashMap<String, Long>();
+            for (int i = 0; i < used; i++) {
+                buckets.put(i == BUCKETS - 1 ? "longer" : "<= " + formatMicros(1L << i), histogram.get(i));
+            }
+            return buckets;
+        }
+
+        private void reset() {
+            calls.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram.set(i, 0);
+            }
+        }
+
+        /**
+         * Returns the bucket of a time.
+         */
+        private static int bucket(long nanos) {
+            long micros = (nanos + 999) / 1000;
+            int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+            return Math.min(bucket, BUCKETS - 1);
+        }
+
+        /**
+         * Returns a number of microseconds in the largest unit in which it is at least 1.
+         */
+        private static String formatMicros(long micros) {
+            if (micros >= 1000000)
+                return String.format("%.1f s", micros / 1e6);
+            if (micros >= 1000)
+                return String.format("%.1f ms", micros / 1e3);
+            return micros + " us";
+        }
+    }
+
+    /**
+     * A JFR event for a walk over nodes.
+     */
+    @Name("slideshow.Walk")
+    @Label("Walk")
+    @Description("A walk over nodes of the image list or of its index")
+    @Category("Slideshow")
+    @Enabled(false)
+    public static class WalkEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Visited Nodes")
+        long visits;
+    }
+
+    /**
+     * A JFR event for a timed operation.
+     */
+    @Name("slideshow.Timing")
+    @Label("Timing")
+    @Description("A redraw, decode or slide transition")
+    @Category("Slideshow")
+    public static class TimingEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+}
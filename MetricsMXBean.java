@@ -0,0 +1,54 @@
+import java.util.Map;
+
+/**
+ * The metrics of class Metrics, as exported through JMX under the name 'slideshow:type=Metrics'.
+ *
+ * Walks and timers are identified by the class and method they measure, e.g., 'ImageNode.nodeBefore'.
+ * Times are in milliseconds.
+ *
+ * @version 17 October 2026
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Returns the number of calls of each operation that walks over nodes.
+     */
+    Map<String, Long> getCalls();
+
+    /**
+     * Returns the number of nodes visited by each operation that walks over nodes.
+     */
+    Map<String, Long> getNodeVisits();
+
+    /**
+     * Returns the number of calls of each timed operation.
+     */
+    Map<String, Long> getTimedCalls();
+
+    /**
+     * Returns the mean time of each timed operation.
+     */
+    Map<String, Double> getMeanMillis();
+
+    /**
+     * Returns the longest time of each timed operation.
+     */
+    Map<String, Double> getMaxMillis();
+
+    /**
+     * Returns the histogram of slide transition times, i.e., the number of transitions by the upper bound of their bucket.
+     */
+    Map<String, Long> getSlideTransitionHistogram();
+
+    /**
+     * Returns the histogram of the times of a timed operation.
+     *
+     * @param operation the timed operation, e.g., 'ImageCache.decode'
+     */
+    Map<String, Long> histogram(String operation);
+
+    /**
+     * Sets all metrics back to zero.
+     */
+    void reset();
+}
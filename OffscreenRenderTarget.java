@@ -0,0 +1,80 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+/**
+ * A render target that draws into an image in memory, so that drawing works without a display.
+ * 
+ * Images given by file name are not loaded; a grey placeholder is drawn in their place.
+ * 
+ * @version 17 October 2026
+ */
+public class OffscreenRenderTarget implements RenderTarget {
+
+    // the colour of cleared regions, which matches the graphics pane of the UI
+    private static final Color BACKGROUND = Color.white;
+
+    // the image drawn into
+    private final BufferedImage canvas;
+    private final Graphics2D graphics;
+
+    // the number of times 'show' has been called
+    private long shown;
+
+    /**
+     * Creates an off-screen render target.
+     * 
+     * @param width the width of the surface
+     * @param height the height of the surface
+     */
+    public OffscreenRenderTarget(int width, int height) {
+        canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        graphics = canvas.createGraphics();
+        clear();
+    }
+
+    /**
+     * Returns the image that is drawn into.
+     */
+    public BufferedImage getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * Returns the number of times the drawing has been made visible.
+     */
+    public long getShown() {
+        return shown;
+    }
+
+    public void clear() {
+        erase(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
+    public void erase(int x, int y, int width, int height) {
+        fillRect(x, y, width, height, BACKGROUND);
+    }
+
+    public void fillRect(int x, int y, int width, int height, Color color) {
+        graphics.setColor(color);
+        graphics.fillRect(x, y, width, height);
+    }
+
+    public void drawImage(Image image, int x, int y, int width, int height) {
+        graphics.drawImage(image, x, y, width, height, null);
+    }
+
+    public void drawImage(String fileName, int x, int y, int width, int height) {
+        fillRect(x, y, width, height, Color.lightGray);
+    }
+
+    public void drawString(String text, int x, int y, Color color) {
+        graphics.setColor(color);
+        graphics.drawString(text, x, y);
+    }
+
+    public void show() {
+        shown++;
+    }
+}
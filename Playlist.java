@@ -0,0 +1,75 @@
+/**
+ * A sequence of images with a cursor, as seen by a slideshow viewer.
+ *
+ * A playlist can only be navigated, not changed. It is implemented by Images, which holds all images in memory,
+ * and by StreamingPlaylist, which reads its images from a playlist file on demand.
+ *
+ * The images of a playlist may still be arriving: until 'isComplete' returns true, 'count' may grow,
+ * and moving the cursor past the last image known so far waits for the next one.
+ *
+ * Besides its own cursor, a playlist hands out read-only cursors (see interface PlaylistCursor),
+ * with which views walk the playlist without moving its cursor.
+ *
+ * @version 17 October 2026
+ */
+public interface Playlist {
+
+    /**
+     * Returns the number of images known so far.
+     */
+    int count();
+
+    /**
+     * Returns true, if all images are known, i.e., 'count' will not grow any further.
+     */
+    boolean isComplete();
+
+    /**
+     * Returns the file name of the image at the cursor, or "" if the playlist is empty.
+     */
+    String getImageFileNameAtCursor();
+
+    /**
+     * Returns the file name of the image at a position, or null if the position is out of range.
+     *
+     * @param position the position, counting from 0
+     */
+    String getImageFileNameAt(int position);
+
+    /**
+     * Returns the position of the cursor, counting from 0, or -1 if the playlist is empty.
+     */
+    int indexOfCursor();
+
+    /**
+     * Positions the cursor at the first image.
+     */
+    void moveCursorToStart();
+
+    /**
+     * Positions the cursor at the last image known so far.
+     */
+    void moveCursorToEnd();
+
+    /**
+     * Moves the cursor to the next image. Does nothing at the last image.
+     */
+    void moveCursorRight();
+
+    /**
+     * Moves the cursor to the previous image. Does nothing at the first image.
+     */
+    void moveCursorLeft();
+
+    /**
+     * Positions the cursor at the image at a position. Does nothing, if the position is out of range.
+     *
+     * @param position the position, counting from 0
+     */
+    void moveCursorTo(int position);
+
+    /**
+     * Returns a new read-only cursor over this playlist, which is not positioned yet.
+     */
+    PlaylistCursor newCursor();
+}
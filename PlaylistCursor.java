@@ -0,0 +1,60 @@
+/**
+ * A read-only cursor over a playlist, independent of the cursor of the playlist itself.
+ *
+ * Views that walk a playlist, e.g. to draw a window of thumbnails or to play a show, use cursors of their own,
+ * so that walking never moves the cursor of the playlist, and several views can walk the same playlist at the same time.
+ * A cursor is created once per view and then repositioned, so walking does not allocate.
+ *
+ * A cursor is not positioned until one of the 'moveTo' methods succeeds. A cursor over a playlist that is still
+ * being read waits for the next image when it is moved past the last image known so far, as the playlist cursor does.
+ *
+ * @version 17 October 2026
+ */
+public interface PlaylistCursor {
+
+    /**
+     * Positions this cursor at the image at the cursor of the playlist.
+     *
+     * @return true, unless the playlist is empty
+     */
+    boolean moveToCursor();
+
+    /**
+     * Positions this cursor at the first image.
+     *
+     * @return true, unless the playlist is empty
+     */
+    boolean moveToStart();
+
+    /**
+     * Positions this cursor at the image at a position.
+     *
+     * @param position the position, counting from 0
+     * @return true, unless there is no image at that position
+     */
+    boolean moveTo(int position);
+
+    /**
+     * Moves this cursor to the next image.
+     *
+     * @return true, unless this cursor is not positioned or at the last image
+     */
+    boolean moveRight();
+
+    /**
+     * Moves this cursor to the previous image.
+     *
+     * @return true, unless this cursor is not positioned or at the first image
+     */
+    boolean moveLeft();
+
+    /**
+     * Returns the file name of the image at this cursor, or "" if this cursor is not positioned.
+     */
+    String getFileName();
+
+    /**
+     * Returns the position of this cursor, counting from 0, or -1 if it is not positioned.
+     */
+    int index();
+}
@@ -0,0 +1,203 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class PlaylistFile saves image lists in a compact binary format and opens them again.
+ *
+ * The file names of a list are split into a directory and a name. Every directory is stored once, and every entry
+ * refers to its directory by number. Tables of offsets lead directly to every directory and every entry, so
+ * an opened file does not have to be parsed: it is mapped into memory and entries are decoded when they are needed
+ * (see class MappedPlaylist).
+ *
+ * All numbers are 32-bit big-endian integers, strings are UTF-8 bytes preceded by their length:
+ *
+ *   magic, version, number of entries, cursor position (-1 for an empty list), number of directories
+ *   the offset of every directory, from the start of the file
+ *   the offset of every entry, from the start of the file
+ *   the directories: the directory including its trailing separator
+ *   the entries: the number of its directory, and the name within the directory
+ *
+ * @version 17 October 2026
+ */
+public class PlaylistFile {
+
+    // identifies playlist files, "SSPL" in ASCII
+    public static final int MAGIC = 0x5353504C;
+
+    // the version of the format described above
+    public static final int VERSION = 1;
+
+    // the size of the fixed part at the start of the file
+    static final int HEADER_SIZE = 5 * 4;
+
+    /**
+     * Saves an image list and the position of its cursor.
+     *
+     * The file is written under a temporary name first and then renamed, so that an existing file is only replaced
+     * by a complete one.
+     *
+     * @param images the list to save
+     * @param file the file to write
+     * @throws IOException if the file cannot be written, or the list is too large for the format
+     */
+    public static void write(Images images, Path file) throws IOException {
+        // number the directories of the nodes in the order they first occur
+        Map<String, Integer> directoryNumbers = new HashMap<String, Integer>();
+        List<byte[]> directories = new ArrayList<byte[]>();
+        int count;
+        int cursorPosition;
+        int[] entryDirectories;
+        byte[][] entryNames;
+
+        // the list must not change while it is read
+        images.getReadLock().lock();
+        try {
+            count = images.count();
+            cursorPosition = images.indexOfCursor();
+            entryDirectories = new int[count];
+            entryNames = new byte[count][];
+
+            int entry = 0;
+            for (ImageNode node = images.getFirst(); node != null; node = images.getNext(node)) {
+                String directory = node.getDirectory();
+
+                Integer number = directoryNumbers.get(directory);
+                if (number == null) {
+                    number = directories.size();
+                    directoryNumbers.put(directory, number);
+                    directories.add(directory.getBytes(StandardCharsets.UTF_8));
+                }
+
+                entryDirectories[entry] = number;
+                entryNames[entry] = node.getName().getBytes(StandardCharsets.UTF_8);
+                entry++;
+            }
+        } finally {
+            images.getReadLock().unlock();
+        }
+
+        // lay out the data behind the offset tables
+        long offset = HEADER_SIZE + 4L * directories.size() + 4L * count;
+        int[] directoryOffsets = new int[directories.size()];
+        for (int i = 0; i < directoryOffsets.length; i++) {
+            directoryOffsets[i] = checkedOffset(offset);
+            offset += 4 + directories.get(i).length;
+        }
+        int[] entryOffsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            entryOffsets[i] = checkedOffset(offset);
+            offset += 8 + entryNames[i].length;
+        }
+        checkedOffset(offset);
+
+        Path partial = Files.createTempFile(file.toAbsolutePath().getParent(), "playlist", ".part");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(count);
+                out.writeInt(cursorPosition);
+                out.writeInt(directories.size());
+
+                for (int directoryOffset : directoryOffsets) {
+                    out.writeInt(directoryOffset);
+                }
+                for (int entryOffset : entryOffsets) {
+                    out.writeInt(entryOffset);
+                }
+
+                for (byte[] directory : directories) {
+                    out.writeInt(directory.length);
+                    out.write(directory);
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeInt(entryDirectories[i]);
+                    out.writeInt(entryNames[i].length);
+                    out.write(entryNames[i]);
+                }
+            }
+
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * Opens a playlist file for viewing: a binary playlist file is mapped into memory,
+     * any other file is read as a text playlist (see class StreamingPlaylist).
+     *
+     * @param file the playlist file
+     * @throws IOException if the file cannot be read, or is a binary playlist file of another version
+     */
+    public static Playlist open(Path file) throws IOException {
+        if (isPlaylistFile(file))
+            return new MappedPlaylist(file);
+
+        return new StreamingPlaylist(file);
+    }
+
+    /**
+     * Replaces the images of a list with those of a binary playlist file, and restores the saved cursor position.
+     *
+     * Reads the directories and names of the entries straight from the mapped file and appends them in one piece,
+     * so the file names are neither put together nor split again.
+     *
+     * @param file the playlist file
+     * @param images the list to fill
+     * @throws IOException if the file cannot be read, or is not a binary playlist file
+     */
+    public static void readInto(Path file, Images images) throws IOException {
+        MappedPlaylist playlist = new MappedPlaylist(file);
+        int count = playlist.count();
+
+        List<String> directories = new ArrayList<String>(count);
+        List<byte[]> names = new ArrayList<byte[]>(count);
+        for (int i = 0; i < count; i++) {
+            directories.add(playlist.getDirectoryAt(i));
+            names.add(playlist.getNameAt(i));
+        }
+
+        images.removeAll();
+        images.appendAll(directories, names);
+        images.moveCursorTo(playlist.indexOfCursor());
+    }
+
+    /**
+     * Returns true, if a file starts like a binary playlist file.
+     */
+    public static boolean isPlaylistFile(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] start = new byte[4];
+            int read = 0;
+            while (read < start.length) {
+                int step = in.read(start, read, start.length - read);
+                if (step < 0)
+                    return false;
+                read += step;
+            }
+            return ((start[0] & 0xff) << 24 | (start[1] & 0xff) << 16 | (start[2] & 0xff) << 8 | (start[3] & 0xff)) == MAGIC;
+        }
+    }
+
+    /**
+     * Returns an offset as an int, which is what the format stores.
+     *
+     * @throws IOException if the offset is too large
+     */
+    private static int checkedOffset(long offset) throws IOException {
+        if (offset > Integer.MAX_VALUE)
+            throw new IOException("image list too large for a playlist file");
+        return (int) offset;
+    }
+}
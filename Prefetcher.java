@@ -0,0 +1,288 @@
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Class Prefetcher decodes the images around the cursor on background threads,
+ * so that they are already in the image cache when they are to be displayed.
+ *
+ * After each display, the next 'lookahead' images after the cursor and the image before the cursor
+ * (for manual navigation) are scheduled for decoding, unless they are cached or being decoded already.
+ * Decodes scheduled for an earlier display that are outside the new window and have not started yet are cancelled,
+ * so that moving quickly through the images does not leave a backlog of decodes that the displayed image waits behind.
+ *
+ * Before a slideshow, the first slides of the show can be decoded all at once, on one thread per core (see 'prefetchAll').
+ *
+ * The prefetcher counts how many displayed images were ready in time (hits), were still being decoded (late hits),
+ * or had not been prefetched at all (misses).
+ *
+ * @version 17 October 2026
+ */
+public class Prefetcher {
+
+    // the number of images after the cursor that are prefetched, if nothing else is configured
+    public static final int DEFAULT_LOOKAHEAD = 2;
+
+    // the cache that prefetched images are put into
+    private final ImageCache imageCache;
+
+    // the size images are displayed at
+    private final int width;
+    private final int height;
+
+    // the number of images after the cursor that are prefetched
+    private final int lookahead;
+
+    // decodes images in the background
+    private final ExecutorService executor;
+
+    // decodes the images scheduled by 'prefetchAll', one thread per core
+    private final ExecutorService batchExecutor;
+
+    // the decode of an image that is cached already
+    private static final FutureTask<Void> DONE = new FutureTask<Void>(new Runnable() {
+        public void run() {
+        }
+    }, null);
+    static {
+        DONE.run();
+    }
+
+    // the decodes that have been scheduled but not finished yet, by file name
+    private final Map<String, Future<?>> pending = new ConcurrentHashMap<String, Future<?>>();
+
+    // the decodes that 'prefetchAround' scheduled for the latest display
+    private final List<Future<?>> window = new ArrayList<Future<?>>();
+
+    // statistics
+    private long hits;
+    private long lateHits;
+    private long misses;
+
+    /**
+     * Creates a prefetcher.
+     *
+     * @param imageCache the cache that prefetched images are put into
+     * @param width the width images are displayed at
+     * @param height the height images are displayed at
+     * @param lookahead the number of images after the cursor to prefetch
+     */
+    public Prefetcher(ImageCache imageCache, int width, int height, int lookahead) {
+        this.imageCache = imageCache;
+        this.width = width;
+        this.height = height;
+        this.lookahead = Math.max(0, lookahead);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(this.lookahead, Runtime.getRuntime().availableProcessors())),
+                                                     new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "image-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.batchExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "image-batch-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the image in the given file for display, waiting for its decode if it is scheduled already.
+     *
+     * @param fileName the file name of the image to display
+     * @return the image at display size, or null if the file could not be decoded
+     */
+    public BufferedImage fetch(String fileName) {
+        Future<?> decode = pending.get(fileName);
+
+        synchronized (this) {
+            if (imageCache.contains(fileName, width, height))
+                hits++;
+            else if (decode != null)
+                lateHits++;
+            else
+                misses++;
+        }
+
+        if (decode != null) {
+            try {
+                decode.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // decode below again, which reports the failure as null
+            } catch (CancellationException e) {
+                // decode below instead
+            }
+        }
+
+        return imageCache.get(fileName, width, height);
+    }
+
+    /**
+     * Schedules decoding of the images around a position of the given playlist.
+     *
+     * Only reads the playlist, its cursor is not moved.
+     *
+     * @param playlist the playlist that is being displayed
+     * @param cursor the position of the image that is being displayed
+     */
+    public void prefetchAround(Playlist playlist, int cursor) {
+        if (cursor < 0)
+            return;
+
+        // the file names are read before the lock is taken, as a playlist may have to read them from its file
+        List<String> fileNames = new ArrayList<String>(lookahead + 1);
+        for (int i = 1; i <= lookahead; i++) {
+            String fileName = playlist.getImageFileNameAt(cursor + i);
+            if (fileName == null)
+                break;
+            fileNames.add(fileName);
+        }
+        String previous = playlist.getImageFileNameAt(cursor - 1);
+        if (previous != null)
+            fileNames.add(previous);
+
+        synchronized (window) {
+            List<Future<?>> newWindow = new ArrayList<Future<?>>(fileNames.size());
+            for (String fileName : fileNames) {
+                Future<?> before = pending.get(fileName);
+                Future<?> decode = schedule(fileName, executor, null);
+
+                // decodes scheduled by 'prefetchAll' are left alone
+                if ((decode != before && decode != DONE) || window.contains(decode))
+                    newWindow.add(decode);
+            }
+
+            for (Future<?> decode : window) {
+                if (!newWindow.contains(decode))
+                    decode.cancel(false);
+            }
+            window.clear();
+            window.addAll(newWindow);
+        }
+    }
+
+    /**
+     * Schedules decoding of many images at once, e.g., the slides of a show before it starts, on one thread per core.
+     *
+     * Only as many images are scheduled as fit into three quarters of the cache budget, so that they are not evicted
+     * before they are displayed; the remaining quarter is left for the images needed meanwhile, e.g., thumbnails.
+     *
+     * @param fileNames the file names of the images, in the order they will be displayed
+     * @param onDecoded run on a decoding thread after each scheduled image has been decoded, or null
+     * @return the decodes of the scheduled images, in the order of their file names;
+     *         the decodes of images that were cached already are done, decodes that were scheduled before are shared
+     */
+    public List<Future<?>> prefetchAll(List<String> fileNames, Runnable onDecoded) {
+        int count = Math.min(fileNames.size(), getBatchLimit());
+
+        List<Future<?>> decodes = new ArrayList<Future<?>>(count);
+        for (int i = 0; i < count; i++) {
+            decodes.add(schedule(fileNames.get(i), batchExecutor, onDecoded));
+        }
+        return decodes;
+    }
+
+    /**
+     * Returns the number of images that 'prefetchAll' schedules at most, i.e., that fit into three quarters of the cache budget.
+     */
+    public int getBatchLimit() {
+        return (int) Math.min(Integer.MAX_VALUE, imageCache.getBudgetBytes() * 3 / 4 / ImageCache.sizeOf(width, height));
+    }
+
+    /**
+     * Cancels decodes that have not started yet.
+     *
+     * @param decodes decodes returned by 'prefetchAll'
+     */
+    public void cancel(List<Future<?>> decodes) {
+        for (Future<?> decode : decodes) {
+            decode.cancel(false);
+        }
+    }
+
+    /**
+     * Returns the number of images after the cursor that are prefetched.
+     */
+    public int getLookahead() {
+        return lookahead;
+    }
+
+    /**
+     * Returns the number of displayed images that were decoded in time.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of displayed images that were still being decoded when needed.
+     */
+    public synchronized long getLateHits() {
+        return lateHits;
+    }
+
+    /**
+     * Returns the number of displayed images that had not been prefetched.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of displayed images that were decoded in time, or 0 if nothing has been displayed yet.
+     */
+    public synchronized double getHitRate() {
+        long requests = hits + lateHits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * Schedules decoding of an image, unless it is cached or scheduled already.
+     *
+     * @param executor the threads that decode the image
+     * @param onDecoded run after the image has been decoded, or null
+     * @return the decode of the image; it is done already if the image was cached
+     */
+    private Future<?> schedule(final String fileName, ExecutorService executor, final Runnable onDecoded) {
+        if (imageCache.contains(fileName, width, height))
+            return DONE;
+
+        Future<?> scheduled = pending.get(fileName);
+        if (scheduled != null)
+            return scheduled;
+
+        // the task is registered before it is started and unregisters itself when done
+        FutureTask<Void> decode = new FutureTask<Void>(new Runnable() {
+            public void run() {
+                imageCache.get(fileName, width, height);
+                if (onDecoded != null)
+                    onDecoded.run();
+            }
+        }, null) {
+            protected void done() {
+                pending.remove(fileName, this);
+            }
+        };
+
+        scheduled = pending.putIfAbsent(fileName, decode);
+        if (scheduled != null)
+            return scheduled;
+
+        executor.execute(decode);
+        return decode;
+    }
+}
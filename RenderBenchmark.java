@@ -0,0 +1,218 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A benchmark harness for the redraw paths of the viewer and the creator, which runs without a display.
+ *
+ * The viewer and the creator draw on an off-screen render target. The harness replays scripted navigation sessions
+ * against them and measures every step, i.e., an operation followed by its redraw. It reports the median and
+ * 99th percentile frame time, the decode time per frame, the thumbnail creation time per frame, and the bytes
+ * allocated per frame by the drawing thread.
+ * The first round of a session starts with an empty image cache and thumbnail store and is reported as 'cold';
+ * the first redraw of the creator is measured as part of it. The remaining rounds are reported as 'warm'.
+ *
+ * Decode time is taken from the image cache and includes decodes by the prefetch threads of the viewer.
+ * Thumbnail time is taken from the thumbnail store and covers decoding, scaling and writing the thumbnails of the creator,
+ * summed over the threads that create them in parallel; the viewer shows no thumbnails.
+ *
+ * Session scripts consist of one letter per step:
+ * creator: R/L move right/left, S/E move to start/end, A adds the next image of the directory, D removes one, V reverses the list;
+ * viewer: N/P show the next/previous image.
+ *
+ * Run with: java -Djava.awt.headless=true -cp .:ecs100.jar RenderBenchmark [image directory] [number of images] [rounds]
+ *
+ * @version 17 October 2026
+ */
+public class RenderBenchmark {
+
+    // the scripted sessions
+    private static final String CREATOR_SESSION = "RRRRRRRRRRRRRRRRRRRRLLLLLLLLLLEAAAADDDSRRRRRVRRRRLLLLSE";
+    private static final String VIEWER_SESSION = "NNNNNNNNNNNNNNNNNNNNNNNNNNNNNNPPPPPPPPPPNNNNNNNNNN";
+
+    // the size of the off-screen surface
+    private static final int CANVAS_SIZE = 600;
+
+    public static void main(String[] args) throws Exception {
+        File directory = new File(args.length > 0 ? args[0] : "images");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        List<String> fileNames = new ArrayList<String>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (file.isFile())
+                    fileNames.add(file.getAbsolutePath());
+            }
+        }
+        if (fileNames.isEmpty()) {
+            System.err.println("no images in " + directory);
+            System.exit(1);
+        }
+
+        System.out.println("session\tphase\tframes\tp50 ms\tp99 ms\tdecode ms/frame\tthumbnail ms/frame\talloc KB/frame");
+        runCreator(fileNames, count, rounds);
+        runViewer(fileNames, count, rounds);
+    }
+
+    /**
+     * Replays the creator session on a fresh creator.
+     */
+    private static void runCreator(List<String> fileNames, int count, int rounds) throws Exception {
+        Images images = createImages(fileNames, count);
+        ImageCache imageCache = new ImageCache();
+        File thumbnails = Files.createTempDirectory("render-benchmark").toFile();
+        ThumbnailStore thumbnailStore = new ThumbnailStore(thumbnails);
+        SlideshowCreator creator = new SlideshowCreator(images, new EditHistory(images), imageCache, thumbnailStore,
+                                                        new OffscreenRenderTarget(CANVAS_SIZE, CANVAS_SIZE));
+
+        Recorder recorder = new Recorder("creator", imageCache, thumbnailStore);
+        recorder.begin();
+        creator.redraw();
+        recorder.end();
+        int added = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (char step : CREATOR_SESSION.toCharArray()) {
+                recorder.begin();
+                switch (step) {
+                    case 'R': creator.moveSelectionRight(); break;
+                    case 'L': creator.moveSelectionLeft(); break;
+                    case 'S': creator.moveSelectionToStart(); break;
+                    case 'E': creator.moveSelectionToEnd(); break;
+                    case 'A': creator.addImageAfter(fileNames.get(added++ % fileNames.size())); break;
+                    case 'D': creator.removeImage(); break;
+                    case 'V': creator.reverseImages(); break;
+                }
+                recorder.end();
+            }
+            if (round == 0)
+                recorder.report("cold");
+        }
+        recorder.report("warm");
+    }
+
+    /**
+     * Replays the viewer session on a fresh viewer.
+     */
+    private static void runViewer(List<String> fileNames, int count, int rounds) {
+        Images images = createImages(fileNames, count);
+        images.moveCursorToStart();
+        ImageCache imageCache = new ImageCache();
+        SlideshowViewer viewer = new SlideshowViewer(images, imageCache, Prefetcher.DEFAULT_LOOKAHEAD,
+                                                     new OffscreenRenderTarget(CANVAS_SIZE, CANVAS_SIZE));
+
+        Recorder recorder = new Recorder("viewer", imageCache, null);
+        for (int round = 0; round < rounds; round++) {
+            images.moveCursorToStart();
+            for (char step : VIEWER_SESSION.toCharArray()) {
+                recorder.begin();
+                if (step == 'N')
+                    viewer.nextImage();
+                else
+                    viewer.previousImage();
+                recorder.end();
+            }
+            if (round == 0)
+                recorder.report("cold");
+        }
+        recorder.report("warm");
+    }
+
+    /**
+     * Creates a list of the given number of images, cycling through the given files.
+     */
+    private static Images createImages(List<String> fileNames, int count) {
+        Images images = new Images();
+        for (int i = 0; i < count; i++) {
+            images.addImageAfter(fileNames.get(i % fileNames.size()));
+        }
+        return images;
+    }
+
+    /**
+     * Records the frame time, decode time, thumbnail time and allocation of steps, and reports statistics about them.
+     */
+    private static class Recorder {
+        private final String session;
+        private final ImageCache imageCache;
+        private final ThumbnailStore thumbnailStore;
+        private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // the measurements since the last report
+        private long[] frameNanos = new long[64];
+        private int frames;
+        private long decodeNanos;
+        private long thumbnailNanos;
+        private long allocatedBytes;
+
+        // the state at the beginning of the current step
+        private long start;
+        private long decodeStart;
+        private long thumbnailStart;
+        private long allocatedStart;
+
+        /**
+         * @param thumbnailStore the thumbnail store of the session, or null if it shows no thumbnails
+         */
+        Recorder(String session, ImageCache imageCache, ThumbnailStore thumbnailStore) {
+            this.session = session;
+            this.imageCache = imageCache;
+            this.thumbnailStore = thumbnailStore;
+        }
+
+        void begin() {
+            decodeStart = imageCache.getDecodeNanos();
+            thumbnailStart = thumbnailNanos();
+            allocatedStart = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            start = System.nanoTime();
+        }
+
+        void end() {
+            long elapsed = System.nanoTime() - start;
+            allocatedBytes += threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedStart;
+            decodeNanos += imageCache.getDecodeNanos() - decodeStart;
+            thumbnailNanos += thumbnailNanos() - thumbnailStart;
+
+            if (frames == frameNanos.length)
+                frameNanos = Arrays.copyOf(frameNanos, frames * 2);
+            frameNanos[frames++] = elapsed;
+        }
+
+        /**
+         * Prints the statistics of the steps since the last report, and starts new statistics.
+         */
+        void report(String phase) {
+            long[] sorted = Arrays.copyOf(frameNanos, frames);
+            Arrays.sort(sorted);
+
+            System.out.printf("%s\t%s\t%d\t%.3f\t%.3f\t%.3f\t%.3f\t%.1f%n", session, phase, frames,
+                              percentile(sorted, 50) / 1e6, percentile(sorted, 99) / 1e6,
+                              decodeNanos / 1e6 / frames, thumbnailNanos / 1e6 / frames, allocatedBytes / 1024.0 / frames);
+
+            frames = 0;
+            decodeNanos = 0;
+            thumbnailNanos = 0;
+            allocatedBytes = 0;
+        }
+
+        /**
+         * Returns the time the thumbnail store has spent creating thumbnails so far.
+         */
+        private long thumbnailNanos() {
+            return thumbnailStore != null ? thumbnailStore.getCreateNanos() : 0;
+        }
+
+        /**
+         * Returns a percentile of sorted values, using the nearest-rank method.
+         */
+        private static long percentile(long[] sorted, int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.awt.Color;
+import java.awt.Image;
+
+/**
+ * A surface that the viewer and the creator draw on.
+ * 
+ * Drawing operations only take effect on screen when 'show' is called, 
+ * so that a redraw consisting of several operations appears at once.
+ * 
+ * UIRenderTarget draws on the graphics pane of the UI; OffscreenRenderTarget draws into an image in memory, 
+ * which allows redraws to be measured without a display.
+ * 
+ * @version 17 October 2026
+ */
+public interface RenderTarget {
+
+    /**
+     * Clears the whole surface.
+     */
+    void clear();
+
+    /**
+     * Clears a rectangular region of the surface.
+     */
+    void erase(int x, int y, int width, int height);
+
+    /**
+     * Fills a rectangular region of the surface with a colour.
+     */
+    void fillRect(int x, int y, int width, int height, Color color);
+
+    /**
+     * Draws an image, scaled to the given size.
+     */
+    void drawImage(Image image, int x, int y, int width, int height);
+
+    /**
+     * Draws the image in a file, scaled to the given size. 
+     * 
+     * Used for files that could not be decoded into an image beforehand.
+     */
+    void drawImage(String fileName, int x, int y, int width, int height);
+
+    /**
+     * Draws a line of text, the coordinates giving the left end of its baseline.
+     */
+    void drawString(String text, int x, int y, Color color);
+
+    /**
+     * Makes all drawing since the last call visible.
+     */
+    void show();
+}
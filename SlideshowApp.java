@@ -2,6 +2,12 @@ import ecs100.*;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * This class contains the main method of the program. 
@@ -17,62 +23,81 @@ import java.io.File;
 public class SlideshowApp implements UIButtonListener {
     // Load required images using a JFileChooser
     private JFileChooser fileChooser = new JFileChooser();
-    private final String EARTH = "Earth_Apollo17.jpg";
     private File IMAGES_DIR;
 
+    // a saved list to start with instead of a directory, configured with -Dslideshow.playlist=...
+    private String PLAYLIST_FILE = System.getProperty("slideshow.playlist");
+
+    // whether the chosen directory is watched for changes after it has been loaded, configured with -Dslideshow.watch=true
+    private boolean WATCH_DIR = Boolean.getBoolean("slideshow.watch");
+
     private Images images;             // A shared reference to a linked list of images. 
+    private ImageCache imageCache;     // Decoded images, shared by creator and viewer.
+    private ThumbnailStore thumbnailStore;  // Downscaled copies of the images on disk, used by the creator.
 
     private SlideshowCreator creator;  // responsible for creating slideshows.
     private SlideshowViewer viewer;    // responsible for viewing slideshows.
 
-    private boolean viewerActive;      // flag signalling whether the creator or the viewer is active
+    private volatile boolean viewerActive;      // flag signalling whether the creator or the viewer is active
 
-    // boolean field that can be toggled depending on whether you want to use the 
-    // recursive or iterative implementations of the linked list methods.
-    public static boolean isRecursive = true;
+    // runs all calls of the creator one after the other, as buttons, keys and folder changes arrive on different threads
+    private final ExecutorService creatorThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "creator");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // passes the keys on to the creator on its thread, so that the event dispatch thread never waits for the creator
+    private final UIKeyListener creatorKeys = new UIKeyListener() {
+        public void keyPerformed(final String key) {
+            creatorThread.execute(new Runnable() {
+                public void run() {
+                    creator.keyPerformed(key);
+                }
+            });
+        }
+    };
 
     /**
      * Constructor for objects of class SlideshowApp
      * One collection of images is shared between creator and viewer. 
      */
     public SlideshowApp() {
-        chooseDir();
+        if (PLAYLIST_FILE == null)
+            chooseDir();
 
-        images = new Images();
-        creator = new SlideshowCreator(IMAGES_DIR, images);
-        viewer = new SlideshowViewer(images);
+        images = new Images();     // walks the list iteratively; images.setStrategy(ListStrategy.RECURSIVE) opts into recursion
+        // the cache budget in bytes can be configured with -Dslideshow.cacheBytes=...
+        imageCache = new ImageCache(Long.getLong("slideshow.cacheBytes", ImageCache.DEFAULT_BUDGET_BYTES));
+        // the directory thumbnails are stored in can be configured with -Dslideshow.thumbnails=...
+        String thumbnailDir = System.getProperty("slideshow.thumbnails");
+        thumbnailStore = thumbnailDir != null ? new ThumbnailStore(new File(thumbnailDir)) : new ThumbnailStore();
+        RenderTarget graphicsPane = new UIRenderTarget();
+        // the number of changes that can be undone can be configured with -Dslideshow.undoLimit=...
+        EditHistory history = new EditHistory(images, Integer.getInteger("slideshow.undoLimit", EditHistory.DEFAULT_LIMIT));
+        creator = new SlideshowCreator(images, history, imageCache, thumbnailStore, graphicsPane);
+        // the number of images decoded ahead of the viewer can be configured with -Dslideshow.prefetch=...
+        viewer = new SlideshowViewer(images, imageCache, Integer.getInteger("slideshow.prefetch", Prefetcher.DEFAULT_LOOKAHEAD), graphicsPane);
+        // the number of slides decoded in parallel before a show starts can be configured with -Dslideshow.warmStart=...
+        viewer.setWarmStart(Integer.getInteger("slideshow.warmStart", 0));
     }
 
     private void chooseDir() {
-        File test = null;
-
         // set up the file chooser
         fileChooser.setCurrentDirectory(new File("."));
         fileChooser.setDialogTitle("Select input directory");
         fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
 
         // run the file chooser and check the user didn't hit cancel
-        if (fileChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
-            // get the files in the selected directory and match them to
-            // the files we need.
-            File directory = fileChooser.getSelectedFile();
-            File[] files = directory.listFiles();
-
-            for (File f : files) {
-                if (f.getName().equals(EARTH)) {
-                    test = f;
-                }
-            }
-
-            // check none of the files are missing, and call the load
-            // method in your code.
-            if (test == null) {
-                JOptionPane.showMessageDialog(null, "Directory does not contain correct files", "Error",
-                        JOptionPane.ERROR_MESSAGE);
-                System.exit(1);
-            } else {
-                IMAGES_DIR = new File(test.getParent());    //  Set images directory
-            }
+        if (fileChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION 
+            && fileChooser.getSelectedFile().isDirectory()) {
+            IMAGES_DIR = fileChooser.getSelectedFile();    //  Set images directory; its images are loaded by 'initialise'
+        } else {
+            JOptionPane.showMessageDialog(null, "No image directory selected", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
         }
     }
 
@@ -85,19 +110,77 @@ public class SlideshowApp implements UIButtonListener {
         UI.addButton("CREATOR mode", this);
         UI.addButton("add before", this);
         UI.addButton("add after", this);
+        UI.addButton("add folder", this);
         UI.addButton("remove image", this);
         UI.addButton("remove all", this);
+        UI.addButton("mark image", this);
+        UI.addButton("remove marked", this);
+        UI.addButton("move marked", this);
         UI.addButton("go left", this);
         UI.addButton("go right", this);   
         UI.addButton("go to start", this);
         UI.addButton("go to end", this);   
+        UI.addButton("go to image", this);
         UI.addButton("reverse list", this);
+        UI.addButton("undo", this);
+        UI.addButton("redo", this);
+        UI.addButton("save list", this);
+        UI.addButton("load list", this);
+        UI.addButton("insert list", this);
         UI.addButton("", null);
         UI.addButton("VIEWER mode", this);
+        UI.addButton("open playlist", this);
         UI.addButton("start show", this);    
+        UI.addButton("pause show", this);
+        UI.addButton("stop show", this);
 
         showCreatorUI();
 
+        // load the saved list or the images of the chosen directory, showing the progress in the message line;
+        // the images the creator starts with are not a change that can be undone
+        creatorThread.execute(new Runnable() {
+            public void run() {
+                if (PLAYLIST_FILE != null)
+                    creator.loadList(new File(PLAYLIST_FILE).toPath());
+                else
+                    creator.addFolder(IMAGES_DIR);
+                creator.clearHistory();
+            }
+        });
+
+        if (PLAYLIST_FILE == null && WATCH_DIR)
+            watchDir();
+    }
+
+    /**
+     * Keeps the images up to date with the changes of the chosen directory, e.g., when another program keeps filling it.
+     * 
+     * The changes arrive in batches (see class FolderWatcher) and are applied on the creator's thread,
+     * one batch at a time between the handling of buttons and keys. A running show picks them up when it moves to its next slide.
+     */
+    private void watchDir() {
+        // the time to wait for more changes before they are applied can be configured with -Dslideshow.watchDebounce=...
+        long debounceMillis = Long.getLong("slideshow.watchDebounce", FolderWatcher.DEFAULT_DEBOUNCE_MILLIS);
+        FolderWatcher watcher = new FolderWatcher(new ImageScanner(), debounceMillis, new FolderWatcher.Listener() {
+            public void changed(final List<String> added, final Set<String> removed, final Set<String> removedDirectories,
+                                final Set<String> relistedDirectories) {
+                creatorThread.execute(new Runnable() {
+                    public void run() {
+                        creator.updateFromFolder(added, removed, removedDirectories, relistedDirectories);
+                        UI.printMessage("Watching " + IMAGES_DIR.getName() + ": " + images.count() + " images after "
+                                        + (relistedDirectories.isEmpty() ? "the latest changes" : "listing changed folders again"));
+                        if (!viewerActive)
+                            creator.redraw();
+                    }
+                });
+            }
+        });
+
+        try {
+            watcher.start(IMAGES_DIR.toPath());
+        } catch (IOException e) {
+            UI.printMessage("Could not watch " + IMAGES_DIR + ": " + e.getMessage());
+        }
     }
 
     /**
@@ -108,8 +191,15 @@ public class SlideshowApp implements UIButtonListener {
     public void showCreatorUI() {
         viewerActive=false;
 
-        creator.statusScreen();
-        UI.setKeyListener(creator);
+        // the viewer shows the creator's images again, instead of a playlist file it may have opened
+        viewer.setPlaylist(images);
+
+        creatorThread.execute(new Runnable() {
+            public void run() {
+                creator.statusScreen();
+            }
+        });
+        UI.setKeyListener(creatorKeys);
     }
 
     /**
@@ -127,17 +217,21 @@ public class SlideshowApp implements UIButtonListener {
     /**
      * This method is called when a button that this object is listening to is pressed.
      * 
-     * The method first checks whether a slide show is running. If so, all input is ignored.
+     * The method first checks whether a slide show is running. If so, all input except pausing and stopping the show is ignored.
      * 
      * Then mode changes are checked for. 
      * 
      * Finally, events are passed on to either the creator or viewer object, whichever mode the application is in. 
+     * The creator handles them on its own thread.
      * 
      * @param name The name of the button pressed.
      */
-    public void buttonPerformed(String name) {
-        if (viewer.slideShowIsRunning())
+    public void buttonPerformed(final String name) {
+        if (viewer.slideShowIsRunning()) {
+            if (name.equals("pause show") || name.equals("stop show"))
+                viewer.buttonPerformed(name);
             return;
+        }
 
         if (name.equals("CREATOR mode")) {
             this.showCreatorUI();
@@ -146,8 +240,13 @@ public class SlideshowApp implements UIButtonListener {
         } else if (viewerActive) {
             viewer.buttonPerformed(name);
         }
-        else 
-            creator.buttonPerformed(name);
+        else {
+            creatorThread.execute(new Runnable() {
+                public void run() {
+                    creator.buttonPerformed(name);
+                }
+            });
+        }
     }
 
     public static void main(String[] args) {
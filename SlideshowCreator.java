@@ -1,43 +1,118 @@
 import ecs100.*;
 
+import javax.swing.JFileChooser;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A creator allows to populate a list of images for later viewing with a slideshow viewer
  * Supported operations on images are adding, removing, and reversing.
+ * Images can be added one at a time, or all images in a folder tree at once (see class ImageScanner).
+ * The list can follow the changes of a folder afterwards (see class FolderWatcher and 'updateFromFolder').
+ * The list and its selection can be saved to a playlist file and loaded again (see class PlaylistFile).
+ * 
+ * Several images can be marked: marking an image and then moving the selection marks all images from the marked image to the selection.
+ * The marked images can be removed or moved elsewhere as one piece. Several image files can be added after the selection at once,
+ * and a saved list can be inserted after the selection.
+ * 
+ * Every change to the list is recorded in an edit history, so that it can be undone and redone (see class EditHistory).
+ * The changes of a followed folder are not: undoing and redoing leave them in place, and they keep the marked images.
  * 
  * Unless the list of images is empty, there is always a currently selected image and the selection can be moved in various ways.
  * The reference to the "currently selected image" is maintained by the images object (called cursor)
  * 
+ * Thumbnails are drawn from small copies of the images that a thumbnail store creates once and keeps on disk.
+ * Only the thumbnails in a window around the selection are drawn. The window scrolls with the selection,
+ * so the cost of a redraw does not depend on the length of the list.
+ * A redraw only repaints the slots of the window whose image or selection state has changed since the previous redraw.
+ * 
+ * A creator is not thread-safe: its state and its edit history are only changed from one thread at a time.
+ * The application runs all calls of a creator on one thread of its own (see class SlideshowApp),
+ * as ecs100 handles every button press on a new thread and key presses on the event dispatch thread.
+ * 
  * @author Thomas Kuehne 
  * @version 8 September 2013
  */
 public class SlideshowCreator implements UIKeyListener {
-    private String[] hardcodedFileNames;
-    private int fileAdditionIndex = 0;
-
     // reference to the image list
     private Images images;
 
+    // decoded thumbnails, shared with the viewer
+    private ImageCache imageCache;
+
+    // downscaled copies of the images on disk
+    private ThumbnailStore thumbnailStore;
+
+    // the surface the thumbnails are drawn on
+    private RenderTarget target;
+
+    // finds the images in folders
+    private ImageScanner scanner = new ImageScanner();
+
+    // walks the visible images, without moving the selection
+    private PlaylistCursor window;
+
+    // follows the marked image while the folder changes the list
+    private PlaylistCursor markedImage;
+
+    // the changes to the image list that can be undone and redone
+    private EditHistory history;
+
     // constants that are used to calculate the width of a standard thumbnail, and how they should be laid out in the graphics display.
     private static final int THUMBNAIL_WIDTH = 100;
     private static final int THUMBNAIL_GAP = 10;
     private static final int GRAPHICS_WIDTH = 600;
 
+    // the y coordinate of the selection frames
+    private static final int SLOT_Y = 20;
+
+    // the y coordinate of the text showing the position of the selection
+    private static final int POSITION_Y = SLOT_Y + THUMBNAIL_WIDTH + 40;
+
+    // the number of thumbnails that fit into the graphics display
+    private static final int VISIBLE_THUMBNAILS = (GRAPHICS_WIDTH - THUMBNAIL_WIDTH) / (THUMBNAIL_WIDTH + THUMBNAIL_GAP) + 1;
+
+    // the position of the selected thumbnail within the visible window, from 0 to VISIBLE_THUMBNAILS-1
+    private int selectionSlot = 0;
+
+    // the position of the marked image, or -1 if no image is marked; the images from there to the selection are marked
+    private int mark = -1;
+
+    // what the graphics pane currently shows: the file name in each slot (null if empty), the slot of the selection frame, and the marked slots
+    private String[] drawnFileNames = new String[VISIBLE_THUMBNAILS];
+    private int drawnSelectionSlot = -1;
+    private boolean[] drawnMarked = new boolean[VISIBLE_THUMBNAILS];
+
+    // whether the next redraw has to repaint all slots, as the graphics pane may have been changed by someone else
+    private boolean fullRepaintNeeded = true;
+
+    // frame time statistics
+    private long frames;
+    private long totalFrameNanos;
+    private long repaintedSlots;
+
     /**
      * Creates the slideshow creator object.
      * 
      * @param images the image list shared between creator and viewer
+     * @param history the history that the changes to the image list are recorded in
+     * @param imageCache the cache of decoded images shared between creator and viewer
+     * @param thumbnailStore the store that thumbnails are drawn from
+     * @param target the surface the thumbnails are drawn on
      */
-    public SlideshowCreator(File path, Images images) {
-        this.hardcodedFileNames = new String[]{
-                path.getAbsolutePath() + "/Atmosphere.jpg",
-                path.getAbsolutePath() + "/BachalpseeFlowers.jpg",
-                path.getAbsolutePath() + "/Earth_Apollo17.jpg",
-                path.getAbsolutePath() + "/Galunggung.jpg",
-                path.getAbsolutePath() + "/HopetounFalls.jpg"
-        };
+    public SlideshowCreator(Images images, EditHistory history, ImageCache imageCache, ThumbnailStore thumbnailStore, RenderTarget target) {
         this.images = images;
+        this.window = images.newCursor();
+        this.markedImage = images.newCursor();
+        this.history = history;
+        this.imageCache = imageCache;
+        this.thumbnailStore = thumbnailStore;
+        this.target = target;
     }
 
     /**
@@ -50,6 +125,15 @@ public class SlideshowCreator implements UIKeyListener {
         UI.println("You may use the left, right, home and end cursor keys to navigate,");
         UI.println("if the image pane has the focus.)");
 
+        if (history.getUndoCount() + history.getRedoCount() > 0)
+            UI.printf("\n%d changes can be undone, %d redone%n", history.getUndoCount(), history.getRedoCount());
+
+        if (frames > 0)
+            UI.printf("\nAverage redraw: %.2f ms, %.1f of %d thumbnails repainted%n",
+                      getAverageFrameNanos() / 1e6, (double) repaintedSlots / frames, VISIBLE_THUMBNAILS);
+
+        // the viewer may have drawn on the graphics pane meanwhile
+        fullRepaintNeeded = true;
         this.redraw();
     }
 
@@ -65,16 +149,36 @@ public class SlideshowCreator implements UIKeyListener {
             this.moveSelectionToStart();
         } else if (name.equals("go to end")) {
             this.moveSelectionToEnd();
+        } else if (name.equals("go to image")) {
+            this.moveSelectionTo();
         } else if (name.equals("add before")) {
             this.addImageBefore();
         } else if (name.equals("add after")) {
             this.addImageAfter();
+        } else if (name.equals("add folder")) {
+            this.addFolder();
         } else if (name.equals("remove image")) {
             this.removeImage();
         } else if (name.equals("remove all")) {
             this.clearImages();
         } else if (name.equals("reverse list")) {
             this.reverseImages();
+        } else if (name.equals("save list")) {
+            this.saveList();
+        } else if (name.equals("load list")) {
+            this.loadList();
+        } else if (name.equals("insert list")) {
+            this.insertList();
+        } else if (name.equals("mark image")) {
+            this.markImage();
+        } else if (name.equals("remove marked")) {
+            this.removeMarked();
+        } else if (name.equals("move marked")) {
+            this.moveMarked();
+        } else if (name.equals("undo")) {
+            this.undo();
+        } else if (name.equals("redo")) {
+            this.redo();
         }
     }
 
@@ -96,7 +200,10 @@ public class SlideshowCreator implements UIKeyListener {
      * Moves the current selection to the left, assuming it is not already at the start of the list.
      */
     public void moveSelectionLeft() {
+        ImageNode before = images.getCursor();
         images.moveCursorLeft();
+        if (images.getCursor() != before)
+            selectionSlot--;
         this.redraw();
     }
 
@@ -104,7 +211,10 @@ public class SlideshowCreator implements UIKeyListener {
      * Moves the current selection to the right, assuming that it is not already at the end of the list.
      */
     public void moveSelectionRight() {
+        ImageNode before = images.getCursor();
         images.moveCursorRight();
+        if (images.getCursor() != before)
+            selectionSlot++;
         this.redraw();
     }
 
@@ -113,6 +223,7 @@ public class SlideshowCreator implements UIKeyListener {
      */
     public void moveSelectionToStart() {
         images.moveCursorToStart();
+        selectionSlot = 0;
         this.redraw();
     }
 
@@ -121,42 +232,154 @@ public class SlideshowCreator implements UIKeyListener {
      */
     public void moveSelectionToEnd() {
         images.moveCursorToEnd();
+        selectionSlot = VISIBLE_THUMBNAILS - 1;
         this.redraw();
     }
 
     /**
-     * Adds the respective image after the currently selected image
+     * Asks for an image number and changes the current selection to that image.
+     */
+    public void moveSelectionTo() {
+        int count = images.count();
+        if (count == 0)
+            return;
+
+        int number = UI.askInt("Go to image number (1 to " + count + "):");
+        images.moveCursorTo(number - 1);
+        this.redraw();
+    }
+
+    /**
+     * Asks for one or more image files and adds them after the currently selected image
      */
     public void addImageAfter() {
-        String imageFileName = this.hardcodedFileNames[this.fileAdditionIndex++];
+        JFileChooser fileChooser = new JFileChooser(new File("."));
+        fileChooser.setDialogTitle("Choose images to add");
+        fileChooser.setMultiSelectionEnabled(true);
+        if (fileChooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION)
+            return;
 
-        if (this.fileAdditionIndex >= this.hardcodedFileNames.length) {
-            this.fileAdditionIndex = 0;
+        List<String> imageFileNames = new ArrayList<String>();
+        for (File file : fileChooser.getSelectedFiles()) {
+            imageFileNames.add(file.getPath());
         }
+        this.addImagesAfter(imageFileNames);
+    }
 
+    /**
+     * Adds an image after the currently selected image
+     */
+    public void addImageAfter(String imageFileName) {
+        int cursorBefore = images.indexOfCursor();
         images.addImageAfter(imageFileName);
+        history.added(cursorBefore + 1, 1, cursorBefore);
+        selectionSlot++;
+        mark = -1;
         this.redraw();
     }
 
     /**
-     * Adds an image before the currently selected image
+     * Adds images after the currently selected image in one piece, and selects the last of them
+     */
+    public void addImagesAfter(List<String> imageFileNames) {
+        int cursorBefore = images.indexOfCursor();
+        images.addAllAfter(imageFileNames);
+        history.added(cursorBefore + 1, imageFileNames.size(), cursorBefore);
+        selectionSlot += imageFileNames.size();
+        mark = -1;
+        this.redraw();
+    }
+
+    /**
+     * Asks for an image file and adds it before the currently selected image
      */  
     private void addImageBefore() {
-        String imageFileName = this.hardcodedFileNames[this.fileAdditionIndex++];
+        String imageFileName = UIFileChooser.open("Choose an image to add");
+        if (imageFileName == null)
+            return;
+
+        int cursorBefore = images.indexOfCursor();
+        images.addImageBefore(imageFileName);  
+        history.added(Math.max(0, cursorBefore), 1, cursorBefore);
+        mark = -1;
+        this.redraw();
+    }
 
-        if (this.fileAdditionIndex >= this.hardcodedFileNames.length) {
-            this.fileAdditionIndex = 0;
+    /**
+     * Asks for a folder and adds the images in it and its subfolders at the end of the list.
+     */
+    public void addFolder() {
+        JFileChooser folderChooser = new JFileChooser(new File("."));
+        folderChooser.setDialogTitle("Choose a folder to add");
+        folderChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+
+        if (folderChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION)
+            this.addFolder(folderChooser.getSelectedFile());
+    }
+
+    /**
+     * Adds the images in a folder and its subfolders at the end of the list, showing the progress in the message line.
+     */
+    public void addFolder(File folder) {
+        int cursorBefore = images.indexOfCursor();
+        int countBefore = images.count();
+        try {
+            int added = scanner.scan(folder.toPath(), images, new ImageScanner.Listener() {
+                public void progress(int filesScanned, int imagesAdded) {
+                    UI.printMessage("Scanning " + folder.getName() + ": " + imagesAdded + " images in " + filesScanned + " files");
+                }
+            });
+            UI.printMessage("Added " + added + " images from " + folder.getName());
+        } catch (IOException e) {
+            UI.printMessage("Could not read " + folder + ": " + e.getMessage());
         }
 
-        images.addImageBefore(imageFileName);  
+        // the images found before a failure stay in the list, so they are recorded either way
+        history.added(countBefore, images.count() - countBefore, cursorBefore);
+        mark = -1;
         this.redraw();
     }
 
+    /**
+     * Brings the list up to date with changes of a folder whose images are in it (see class FolderWatcher).
+     *
+     * The images of removed files are removed wherever they are in the list, and added images are added at the end.
+     * The changes are not edits of the user, so they cannot be undone, and they keep the images that can be redone
+     * and the marked images; if the marked image is removed, the mark moves to the image after it.
+     * The creator is not redrawn, as it may not be visible.
+     *
+     * @param added the file names of the added images
+     * @param removed the file names of the removed files
+     * @param removedDirectories the removed directories, each one including its trailing separator
+     * @param relistedDirectories the directories that were listed again, each one including its trailing separator;
+     *                            only the differences between their images and the list are applied
+     */
+    public void updateFromFolder(List<String> added, Set<String> removed, Set<String> removedDirectories,
+                                 Set<String> relistedDirectories) {
+        if (mark >= 0)
+            markedImage.moveTo(mark);
+
+        history.external(added, removed, removedDirectories, relistedDirectories);
+
+        if (mark >= 0)
+            mark = markedImage.index();
+    }
+
+    /**
+     * Forgets the changes that can be undone and redone, e.g., after loading the images the creator starts with,
+     * which the user should not be able to undo.
+     */
+    public void clearHistory() {
+        history.clear();
+    }
+
     /**
      * Removes the currently selected image from the list.
      */
     public void removeImage() {
-        images.remove();
+        int cursor = images.indexOfCursor();
+        history.remove(cursor, cursor + 1);
+        mark = -1;
         this.redraw();
     }
 
@@ -164,7 +387,8 @@ public class SlideshowCreator implements UIKeyListener {
      * Clears the list of images.
      */
     public void clearImages() {
-        images.removeAll(); 
+        history.remove(0, images.count());
+        mark = -1;
         this.redraw();
     }
 
@@ -172,55 +396,336 @@ public class SlideshowCreator implements UIKeyListener {
      * Reverses the list of images. 
      */
     public void reverseImages() {
-        images.reverseImages();
+        history.reverse();
+        mark = -1;
         this.redraw();
     }
 
     /**
-     * Draws the list of image thumbnails on the graphics pane.
+     * Undoes the most recent change to the list, and selects the image that was selected before it.
      */
-    public void redraw() { 
-        UI.clearGraphics();
+    public void undo() {
+        if (!history.undo())
+            UI.printMessage("Nothing to undo");
 
-        // starting coordinates
-        int x = 10;
-        int y = 20;
+        mark = -1;
+        this.redraw();
+    }
 
-        int size = images.count();
+    /**
+     * Redoes the most recently undone change to the list, and selects the image that was selected after it.
+     */
+    public void redo() {
+        if (!history.redo())
+            UI.printMessage("Nothing to redo");
+
+        mark = -1;
+        this.redraw();
+    }
 
-        // is there anything to display?
-        if (size < 1) 
+    /**
+     * Marks the currently selected image, so that moving the selection marks all images from there to the selection.
+     * If images are marked already, unmarks them instead.
+     */
+    public void markImage() {
+        mark = mark < 0 ? images.indexOfCursor() : -1;
+        this.redraw();
+    }
+
+    /**
+     * Removes the marked images from the list, or the selected image if none are marked.
+     */
+    public void removeMarked() {
+        if (mark < 0) {
+            this.removeImage();
             return;
+        }
 
-        // save current selection
-        ImageNode selectedImageNode = images.getCursor();
+        int from = markedFrom();
+        int to = markedTo();
+        history.remove(from, to);
+        UI.printMessage("Removed " + (to - from) + " images");
 
-        // select the first image
-        images.moveCursorToStart();
+        mark = -1;
+        this.redraw();
+    }
 
-        // calculate thumbnail width
-        int width = Math.min(THUMBNAIL_WIDTH, (GRAPHICS_WIDTH - THUMBNAIL_WIDTH) / size);
+    /**
+     * Asks for an image number and moves the marked images, or the selected image if none are marked, before that image.
+     */
+    public void moveMarked() {
+        int count = images.count();
+        if (count == 0)
+            return;
 
-        for (int i=0; i<size; i++) {       
+        int from = mark < 0 ? images.indexOfCursor() : markedFrom();
+        int to = mark < 0 ? from + 1 : markedTo();
+        int number = UI.askInt("Move the " + (to - from) + " images before image number (1 to " + (count + 1) + ", " + (count + 1) + " for the end):");
+        int target = number - 1;
+        if (target < 0 || target > count || (target >= from && target <= to))     // outside the list, or where the images are already
+            return;
 
-            // draw selection frame, if applicable
-            if (images.getCursor() == selectedImageNode) {
-                UI.setColor(new java.awt.Color(255, 0, 0));
-                UI.fillRect(x, y, width+16, width + 16);
-            } 
+        history.move(from, to, target);
 
-            // draw image 
-            String imageFileName = images.getImageFileNameAtCursor();
-            UI.drawImage(imageFileName, x+8, y+8, width, width);
+        // the marked images stay marked at their new place
+        int newFrom = target <= from ? target : target - (to - from);
+        if (mark >= 0)
+            mark += newFrom - from;
 
-            // advance drawing position and list position
-            x += (width + THUMBNAIL_GAP);
-            images.moveCursorRight();
+        this.redraw();
+    }
+
+    /**
+     * Asks for a playlist file and inserts the images saved in it after the currently selected image.
+     */
+    public void insertList() {
+        String fileName = UIFileChooser.open("Choose a saved list to insert");
+        if (fileName == null)
+            return;
+
+        try {
+            Images saved = new Images();
+            PlaylistFile.readInto(Paths.get(fileName), saved);
+            int added = saved.count();
+            int cursorBefore = images.indexOfCursor();
+            images.splice(saved);
+            history.added(cursorBefore + 1, added, cursorBefore);
+            selectionSlot += added;
+            UI.printMessage("Inserted " + added + " images from " + fileName);
+        } catch (IOException e) {
+            UI.printMessage("Could not load " + fileName + ": " + e.getMessage());
         }
 
-        // restore image selection
-        images.setCursor(selectedImageNode);
-        
-        UI.repaintGraphics();
-    }        
+        mark = -1;
+        this.redraw();
+    }
+
+    /**
+     * Returns the position of the first marked image.
+     */
+    private int markedFrom() {
+        return Math.min(mark, images.indexOfCursor());
+    }
+
+    /**
+     * Returns the position after the last marked image.
+     */
+    private int markedTo() {
+        return Math.max(mark, images.indexOfCursor()) + 1;
+    }
+
+    /**
+     * Asks for a file name and saves the list and the selection to that playlist file.
+     */
+    public void saveList() {
+        String fileName = UIFileChooser.save("Save the list as");
+        if (fileName == null)
+            return;
+
+        try {
+            PlaylistFile.write(images, Paths.get(fileName));
+            UI.printMessage("Saved " + images.count() + " images to " + fileName);
+        } catch (IOException e) {
+            UI.printMessage("Could not save " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Asks for a playlist file and replaces the list with the images saved in it.
+     */
+    public void loadList() {
+        String fileName = UIFileChooser.open("Choose a saved list");
+        if (fileName != null)
+            this.loadList(Paths.get(fileName));
+    }
+
+    /**
+     * Replaces the list with the images saved in a playlist file, and selects the image that was selected when it was saved.
+     */
+    public void loadList(Path file) {
+        try {
+            long start = System.nanoTime();
+            Images loaded = new Images();
+            PlaylistFile.readInto(file, loaded);
+            history.replaceAll(loaded);
+            UI.printMessage(String.format("Loaded %d images from %s in %.0f ms", 
+                                          images.count(), file.getFileName(), (System.nanoTime() - start) / 1e6));
+        } catch (IOException e) {
+            UI.printMessage("Could not load " + file + ": " + e.getMessage());
+        }
+
+        mark = -1;
+        this.redraw();
+    }
+
+    /**
+     * Returns the number of redraws so far.
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the average time of a redraw in nanoseconds, or 0 if nothing has been drawn yet.
+     */
+    public double getAverageFrameNanos() {
+        return frames == 0 ? 0 : (double) totalFrameNanos / frames;
+    }
+
+    /**
+     * Returns the number of thumbnail slots that have been repainted over all redraws.
+     */
+    public long getRepaintedSlots() {
+        return repaintedSlots;
+    }
+
+    /**
+     * Draws the thumbnails of the images in the visible window on the graphics pane.
+     * 
+     * The window is found by walking the images with a cursor of the creator's own, without moving the selection.
+     * The selection stays in its slot, unless that would leave slots empty that images before the selection could fill.
+     * 
+     * Only slots whose image or selection frame differs from what is on the graphics pane are erased and drawn again.
+     */
+    public void redraw() { 
+        long start = System.nanoTime();
+
+        // collect the file names of the visible images
+        String[] imageFileNames = new String[VISIBLE_THUMBNAILS];
+        boolean hasSelection;
+
+        // the images must not change while the window is collected
+        images.getReadLock().lock();
+        try {
+            hasSelection = window.moveToCursor();
+            if (!hasSelection) {    // nothing to display
+                selectionSlot = 0;
+            }
+            else {
+                // the selection stays in its slot, unless images before it can fill slots that would stay empty at the end
+                int selected = window.index();
+                selectionSlot = Math.max(0, Math.min(VISIBLE_THUMBNAILS - 1, selectionSlot));
+                int first = Math.max(0, Math.min(selected - selectionSlot, images.count() - VISIBLE_THUMBNAILS));
+                selectionSlot = selected - first;
+
+                // walk right from the first visible image
+                window.moveTo(first);
+                int visible = 0;
+                do {
+                    imageFileNames[visible++] = window.getFileName();
+                } while (visible < VISIBLE_THUMBNAILS && window.moveRight());
+            }
+        } finally {
+            images.getReadLock().unlock();
+        }
+
+        int newSelectionSlot = hasSelection ? selectionSlot : -1;
+
+        // find the marked slots from the positions of the marked images
+        boolean[] marked = new boolean[VISIBLE_THUMBNAILS];
+        if (mark >= 0 && hasSelection) {
+            int firstPosition = images.indexOfCursor() - selectionSlot;
+            for (int i=0; i<VISIBLE_THUMBNAILS; i++) {
+                marked[i] = imageFileNames[i] != null && firstPosition + i >= markedFrom() && firstPosition + i < markedTo();
+            }
+        }
+
+        // find the slots that changed
+        boolean[] changed = new boolean[VISIBLE_THUMBNAILS];
+        for (int i=0; i<VISIBLE_THUMBNAILS; i++) {
+            changed[i] = fullRepaintNeeded
+                || (imageFileNames[i] == null ? drawnFileNames[i] != null : !imageFileNames[i].equals(drawnFileNames[i]))
+                || (i == newSelectionSlot) != (i == drawnSelectionSlot)
+                || marked[i] != drawnMarked[i];
+        }
+
+        // the selection and mark frames reach into the neighbouring slots, so erasing a neighbour requires drawing the frame again
+        for (int i=0; i<VISIBLE_THUMBNAILS; i++) {
+            if ((i == newSelectionSlot || marked[i])
+                && ((i > 0 && changed[i-1]) || (i < VISIBLE_THUMBNAILS-1 && changed[i+1])))
+                changed[i] = true;
+        }
+
+        // create missing thumbnails of the changed slots in parallel
+        List<String> changedFileNames = new ArrayList<String>();
+        for (int i=0; i<VISIBLE_THUMBNAILS; i++) {
+            if (changed[i] && imageFileNames[i] != null)
+                changedFileNames.add(imageFileNames[i]);
+        }
+        thumbnailStore.prepare(changedFileNames);
+
+        // erase the changed slots
+        if (fullRepaintNeeded)
+            target.clear();
+        else {
+            for (int i=0; i<VISIBLE_THUMBNAILS; i++) {
+                if (changed[i])
+                    target.erase(slotX(i), SLOT_Y, THUMBNAIL_WIDTH+16, THUMBNAIL_WIDTH+16);
+            }
+        }
+
+        // draw the changed slots
+        int repainted = 0;
+        for (int i=0; i<VISIBLE_THUMBNAILS; i++) {
+            if (changed[i] && imageFileNames[i] != null) {
+                drawSlot(i, imageFileNames[i], i == newSelectionSlot, marked[i]);
+                repainted++;
+            }
+        }
+
+        drawnFileNames = imageFileNames;
+        drawnSelectionSlot = newSelectionSlot;
+        drawnMarked = marked;
+        fullRepaintNeeded = false;
+
+        drawPosition();
+
+        target.show();
+
+        frames++;
+        repaintedSlots += repainted;
+        totalFrameNanos += System.nanoTime() - start;
+        if (Metrics.ENABLED)
+            Metrics.CREATOR_REDRAW.record(start);
+    }
+
+    /**
+     * Draws the thumbnail of an image in a slot, with a selection frame if it is selected, or a mark frame if it is marked.
+     */
+    private void drawSlot(int slot, String imageFileName, boolean selected, boolean marked) {
+        int x = slotX(slot);
+
+        // draw selection or mark frame, if applicable
+        if (selected) {
+            target.fillRect(x, SLOT_Y, THUMBNAIL_WIDTH+16, THUMBNAIL_WIDTH + 16, new java.awt.Color(255, 0, 0));
+        } 
+        else if (marked) {
+            target.fillRect(x, SLOT_Y, THUMBNAIL_WIDTH+16, THUMBNAIL_WIDTH + 16, new java.awt.Color(255, 200, 0));
+        }
+
+        // draw thumbnail, decoding it only if it is not cached yet
+        java.awt.Image thumbnail = imageCache.get(thumbnailStore.thumbnailFor(imageFileName), THUMBNAIL_WIDTH, THUMBNAIL_WIDTH);
+        if (thumbnail != null)
+            target.drawImage(thumbnail, x+8, SLOT_Y+8, THUMBNAIL_WIDTH, THUMBNAIL_WIDTH);
+        else 
+            target.drawImage(imageFileName, x+8, SLOT_Y+8, THUMBNAIL_WIDTH, THUMBNAIL_WIDTH);
+    }
+
+    /**
+     * Draws the position of the selection below the thumbnails.
+     */
+    private void drawPosition() {
+        target.erase(10, POSITION_Y - 15, GRAPHICS_WIDTH - 10, 20);
+
+        if (images.count() > 0)
+            target.drawString("image " + (images.indexOfCursor() + 1) + " of " + images.count()
+                              + (mark >= 0 ? ", " + (markedTo() - markedFrom()) + " marked" : ""), 10, POSITION_Y, java.awt.Color.black);
+    }
+
+    /**
+     * Returns the x coordinate of the selection frame of a slot.
+     */
+    private static int slotX(int slot) {
+        return 10 + slot * (THUMBNAIL_WIDTH + THUMBNAIL_GAP);
+    }
 }
@@ -0,0 +1,248 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class SlideshowScheduler plays a slideshow as a sequence of timed ticks on a background thread,
+ * so that the thread handling buttons and keys is never blocked while a show is running.
+ *
+ * At every tick, the listener shows the next slide and answers how long that slide should stay on screen.
+ * The deadline of the next tick is computed from the deadline of the previous tick using the monotonic System.nanoTime clock,
+ * so time spent showing a slide does not accumulate as drift. A slide that is shown so late, e.g., after a slow decode,
+ * that its time has passed already is shown for its full time from then on, so neither it nor the slides after it
+ * flash by while the schedule catches up.
+ *
+ * A running show can be paused, resumed and stopped.
+ *
+ * The listener is called outside the lock of the scheduler, so pausing, resuming, stopping and asking whether a show
+ * is running never wait while a slide is decoded and drawn. Pausing or stopping while a slide is being shown takes
+ * effect once it is shown, so the listener is notified that the show has ended only after its last slide.
+ *
+ * @version 17 October 2026
+ */
+public class SlideshowScheduler {
+
+    /**
+     * Receives the ticks of a slideshow.
+     */
+    public interface Listener {
+
+        /**
+         * Shows the next slide of the show.
+         *
+         * @param slideNumber the number of the slide, counting from 0
+         * @return the time in milliseconds the slide should be shown, or a negative number if there are no more slides
+         */
+        long showSlide(int slideNumber);
+
+        /**
+         * Called once when the show has ended, either after the last slide or because it was stopped.
+         */
+        void showEnded();
+    }
+
+    // runs the ticks
+    private final ScheduledExecutorService executor;
+
+    // the listener of the current show, or null if no show is running
+    private volatile Listener listener;
+
+    // the number of the next slide
+    private int slideNumber;
+
+    // the System.nanoTime at which the next tick is due
+    private long deadline;
+
+    // the time left until the next tick, while the show is paused
+    private long remainingWhilePaused;
+
+    private volatile boolean paused;
+
+    // whether a slide is being shown, outside the lock, and whether the show is to end once it is shown
+    private boolean showing;
+    private boolean stopRequested;
+
+    // the pending tick, or null if none is scheduled
+    private ScheduledFuture<?> nextTick;
+
+    // identifies the pending tick, so that a tick that was cancelled too late does not run
+    private long generation;
+
+    /**
+     * Creates a scheduler with its own background thread.
+     */
+    public SlideshowScheduler() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "slideshow-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Starts a show. The first slide is shown right away.
+     *
+     * Does nothing, if a show is running already.
+     *
+     * @param showListener shows the slides
+     */
+    public synchronized void start(Listener showListener) {
+        if (listener != null)
+            return;
+
+        listener = showListener;
+        slideNumber = 0;
+        paused = false;
+        deadline = System.nanoTime();
+        schedule(0);
+    }
+
+    /**
+     * Returns true, if a show is running, whether paused or not.
+     */
+    public boolean isRunning() {
+        return listener != null;
+    }
+
+    /**
+     * Returns true, if a show is running but paused.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Pauses the running show. The current slide stays on screen.
+     */
+    public synchronized void pause() {
+        if (listener == null || paused)
+            return;
+
+        paused = true;
+        if (showing)    // the slide being shown finds the show paused
+            return;
+
+        cancelNextTick();
+        remainingWhilePaused = Math.max(0, deadline - System.nanoTime());
+    }
+
+    /**
+     * Resumes a paused show. The current slide is shown for the time it had left when the show was paused.
+     */
+    public synchronized void resume() {
+        if (listener == null || !paused)
+            return;
+
+        paused = false;
+        if (showing)    // the slide being shown schedules the next tick
+            return;
+
+        deadline = System.nanoTime() + remainingWhilePaused;
+        schedule(remainingWhilePaused);
+    }
+
+    /**
+     * Stops the running show. If a slide is being shown, the show ends once it is shown.
+     */
+    public void stop() {
+        Listener endedListener;
+        synchronized (this) {
+            if (listener == null)
+                return;
+
+            if (showing) {
+                stopRequested = true;
+                return;
+            }
+            endedListener = end();
+        }
+        endedListener.showEnded();
+    }
+
+    /**
+     * Shows the next slide and schedules the tick after it.
+     *
+     * @param tickGeneration the generation of the tick when it was scheduled
+     */
+    private void tick(long tickGeneration) {
+        Listener showListener;
+        int number;
+        synchronized (this) {
+            if (tickGeneration != generation)     // cancelled after it had started waiting for the lock
+                return;
+
+            showListener = listener;
+            number = slideNumber++;
+            nextTick = null;
+            showing = true;
+        }
+
+        long duration = -1;     // a slide that fails ends the show
+        Listener endedListener = null;
+        try {
+            duration = showListener.showSlide(number);
+        } finally {
+            synchronized (this) {
+                showing = false;
+                if (duration < 0 || stopRequested)
+                    endedListener = end();
+                else {
+                    // the next deadline is relative to this tick's deadline, not to the current time, unless it has passed already
+                    long now = System.nanoTime();
+                    deadline += TimeUnit.MILLISECONDS.toNanos(duration);
+                    if (deadline < now)
+                        deadline = now + TimeUnit.MILLISECONDS.toNanos(duration);
+                    if (paused)
+                        remainingWhilePaused = Math.max(0, deadline - System.nanoTime());
+                    else
+                        schedule(deadline - System.nanoTime());
+                }
+            }
+
+            if (endedListener != null)
+                endedListener.showEnded();
+        }
+    }
+
+    /**
+     * Schedules the next tick.
+     *
+     * @param delay the delay in nanoseconds, a negative delay runs the tick immediately
+     */
+    private void schedule(long delay) {
+        final long tickGeneration = ++generation;
+        nextTick = executor.schedule(new Runnable() {
+            public void run() {
+                tick(tickGeneration);
+            }
+        }, Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Cancels the pending tick, if any.
+     */
+    private void cancelNextTick() {
+        generation++;
+        if (nextTick != null)
+            nextTick.cancel(false);
+        nextTick = null;
+    }
+
+    /**
+     * Ends the current show. The caller holds the lock and notifies the listener once it has released it.
+     *
+     * @return the listener of the show
+     */
+    private Listener end() {
+        Listener endedListener = listener;
+        listener = null;
+        cancelNextTick();
+        paused = false;
+        stopRequested = false;
+        return endedListener;
+    }
+}
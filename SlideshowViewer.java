@@ -1,31 +1,89 @@
 import ecs100.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 /**
  * A slideshow viewer uses the image collection and displays one image at a time on the graphics display. 
  * The user can manually move through the list, or they can request that the entire list be shown in order, 
- * with a two second delay between consecutive images.
+ * with a two second delay between consecutive images, unless a different duration has been set for an image.
  * 
- * A slideshow viewer object should not modify the linked list structure, only read from it.
+ * The show is played by a scheduler on a background thread, so buttons and keys stay responsive and the show can be paused and stopped.
+ * The show walks the images with a cursor of its own (see interface PlaylistCursor), so the selected image stays where it is.
+ * Optionally, a show starts warm: its first slides are decoded in parallel before it starts (see 'setWarmStart'),
+ * so that it does not wait for decoding later on.
+ * 
+ * A slideshow viewer object does not modify the images, it only navigates them as a playlist.
+ * Usually, the playlist is the image list shared with the creator; alternatively, a playlist file can be opened.
+ * A binary playlist file is mapped into memory (see class MappedPlaylist), a text playlist file is read in the background
+ * while it is already being viewed (see class StreamingPlaylist).
  * 
  * @author Thomas Kuehne
  * @version 5 September 2013
  */
-public class SlideshowViewer implements UIKeyListener {
+public class SlideshowViewer implements UIKeyListener, SlideshowScheduler.Listener {
+
+    // The time an image is shown during a slideshow, unless a different duration has been set for it.
+    public static final long DEFAULT_SLIDE_DURATION = 2000;
+
+    // Plays slideshows. While a show is running, the user can only pause and stop it, but cannot navigate.
+    private SlideshowScheduler scheduler = new SlideshowScheduler();
+
+    // The durations in milliseconds of images that are not shown for the default duration, by file name.
+    private Map<String, Long> slideDurations = new ConcurrentHashMap<String, Long>();
+
+    // Walks the playlist during a slideshow, so that the show does not move the cursor of the playlist.
+    private PlaylistCursor showCursor;
+
+    // The number of slides decoded before a slideshow starts, or 0 if slides are only decoded shortly before they are shown.
+    private int warmStartSlides;
+
+    // Decodes the first slides and then starts the show, or null if no show is being prepared. Guarded by warmStartLock.
+    private volatile Thread warmStart;
+    private final Object warmStartLock = new Object();
+
+    // The decodes of the slides of the current show that were started before it, or an empty list.
+    private volatile List<Future<?>> warmDecodes = new ArrayList<Future<?>>();
+
+    // The images to be viewed. Usually the image collection that the creator and the viewer share.
+    private Playlist playlist;
+
+    // The playlist file being viewed, or null if the playlist is not a file.
+    private Path playlistFile;
+
+    // Decoded images. The creator and the viewer share this cache.
+    private ImageCache imageCache;
 
-    // This flag identifies whether there is a slideshow running. 
-    // During such time, the user can neither use the buttons nor use the cursor keys to navigate.
-    private boolean slideShowIsActive = false;
+    // Decodes the images around the cursor in the background.
+    private Prefetcher prefetcher;
 
-    // The image collection to be viewed. The creator and the viewer share this collection. 
-    private Images images;
+    // The surface images are drawn on.
+    private RenderTarget target;
+
+    // The size of the box an image is drawn into.
+    public static final int IMAGE_SIZE = 450;
 
     /**
      * Creates the slideshow viewer object.
      * 
-     * @param images the image collection shared between creator and viewer
+     * @param playlist the images to be viewed, usually the image collection shared between creator and viewer
+     * @param imageCache the cache of decoded images shared between creator and viewer
+     * @param lookahead the number of images after the current one to decode in the background
+     * @param target the surface images are drawn on
      */  
-    public SlideshowViewer(Images images) {
-        this.slideShowIsActive = false;
-        this.images = images;
+    public SlideshowViewer(Playlist playlist, ImageCache imageCache, int lookahead, RenderTarget target) {
+        this.playlist = playlist;
+        this.imageCache = imageCache;
+        this.prefetcher = new Prefetcher(imageCache, IMAGE_SIZE, IMAGE_SIZE, lookahead);
+        this.target = target;
     }
 
     /**
@@ -35,10 +93,18 @@ public class SlideshowViewer implements UIKeyListener {
 
         if (name.equals("start show")) {
             this.slideshow();
+        } else if (name.equals("pause show")) {
+            this.togglePause();
+        } else if (name.equals("stop show")) {
+            this.stopShow();
         } else if(name.equals("go left")) {
             this.previousImage();
         } else if (name.equals("go right")) {
             this.nextImage();
+        } else if (name.equals("go to image")) {
+            this.goToImage();
+        } else if (name.equals("open playlist")) {
+            this.openPlaylist();
         }
 
     }
@@ -47,8 +113,13 @@ public class SlideshowViewer implements UIKeyListener {
      * Interprets key presses.
      */  
     public void keyPerformed(String key) {
-        if (slideShowIsRunning())  
+        if (slideShowIsRunning()) {
+            if (key.equals("Space"))
+                togglePause();
+            else if (key.equals("Escape"))
+                stopShow();
             return;
+        }
 
         if (key.equals("Left"))
             previousImage();
@@ -60,7 +131,70 @@ public class SlideshowViewer implements UIKeyListener {
      * Returns true, if there is an active slideshow
      */
     public boolean slideShowIsRunning() {
-        return slideShowIsActive;
+        return warmStart != null || scheduler.isRunning();
+    }
+
+    /**
+     * Replaces the images to be viewed. A playlist file that was opened before is closed.
+     * 
+     * @param newPlaylist the images to be viewed from now on
+     */
+    public void setPlaylist(Playlist newPlaylist) {
+        if (playlist != newPlaylist && playlist instanceof StreamingPlaylist)
+            ((StreamingPlaylist) playlist).close();
+
+        playlist = newPlaylist;
+        playlistFile = null;
+    }
+
+    /**
+     * Asks for a playlist file and views its images.
+     * 
+     * A text playlist file is viewed while it is still being read.
+     */
+    public void openPlaylist() {
+        String fileName = UIFileChooser.open("Choose a playlist file");
+        if (fileName == null)
+            return;
+
+        try {
+            Playlist opened = PlaylistFile.open(Paths.get(fileName));
+            setPlaylist(opened);
+            playlistFile = Paths.get(fileName);
+        } catch (IOException e) {
+            UI.printMessage("Could not open " + fileName + ": " + e.getMessage());
+            return;
+        }
+
+        // a text playlist starts at its first image, a binary one at its saved cursor position
+        if (playlist.indexOfCursor() < 0)
+            playlist.moveCursorToStart();
+        this.statusScreen();
+    }
+
+    /**
+     * Sets the time an image is shown during a slideshow.
+     * 
+     * @param imageFileName the file name of the image
+     * @param milliseconds the duration, or a negative number to return to the default duration
+     */
+    public void setSlideDuration(String imageFileName, long milliseconds) {
+        if (milliseconds < 0)
+            slideDurations.remove(imageFileName);
+        else 
+            slideDurations.put(imageFileName, milliseconds);
+    }
+
+    /**
+     * Sets how many slides are decoded in parallel, one thread per core, before a slideshow starts.
+     * 
+     * The show starts as soon as its first slides are decoded, while the others are still being decoded.
+     * At most as many slides are decoded as fit into the image cache (see 'prefetchAll' in class Prefetcher).
+     * 
+     * @param slides the number of slides to decode at the start of a show, or 0 to decode slides only shortly before they are shown
+     */
+    public void setWarmStart(int slides) {
+        warmStartSlides = Math.max(0, slides);
     }
 
     /**
@@ -73,6 +207,14 @@ public class SlideshowViewer implements UIKeyListener {
         UI.println("You may use the left and right cursor keys to navigate,");
         UI.println("if the image pane has the focus.)");
 
+        if (playlistFile != null)
+            UI.println("\nViewing playlist " + playlistFile + (playlist.isComplete() ? "" : " (still being read)"));
+
+        long displayed = prefetcher.getHits() + prefetcher.getLateHits() + prefetcher.getMisses();
+        if (displayed > 0) 
+            UI.printf("\nPrefetch hit rate: %.0f%% of %d images (%d late, %d missed)%n",
+                      100 * prefetcher.getHitRate(), displayed, prefetcher.getLateHits(), prefetcher.getMisses());
+
         this.redraw();
 
     }
@@ -81,7 +223,20 @@ public class SlideshowViewer implements UIKeyListener {
      * Advances to the next image.
      */
     public void nextImage() {
-        images.moveCursorRight();  
+        playlist.moveCursorRight();  
+        this.redraw();
+    }
+
+    /**
+     * Asks for an image number and moves to that image.
+     */
+    public void goToImage() {
+        int count = playlist.count();
+        if (count == 0)
+            return;
+
+        int number = UI.askInt("Go to image number (1 to " + count + "):");
+        playlist.moveCursorTo(number - 1);
         this.redraw();
     }
 
@@ -89,57 +244,204 @@ public class SlideshowViewer implements UIKeyListener {
      * Moves to the previous image.
      */
     public void previousImage() {
-        images.moveCursorLeft(); 
+        playlist.moveCursorLeft(); 
         this.redraw();
     }
 
     /**
-     * Shows each image in the collection for two seconds. 
+     * Starts showing each image in the collection for two seconds, or the duration set for it. 
      * 
-     * Makes all input handlers ignore all input. 
+     * Returns right away; the show is played by the scheduler. Until it ends, navigation input is ignored.
      */
     public void slideshow() {
+        if (slideShowIsRunning())
+            return;
 
         // set up slide show screen
         UI.clearText();
         UI.println("Slideshow mode\n");
-        UI.println("(buttons and keys disabled)");
+        UI.println("(navigation disabled, space or 'pause show' pauses and resumes,");
+        UI.println(" escape or 'stop show' stops)");
 
-        // disable input handlers
-        slideShowIsActive = true;
+        // the show walks the playlist with a cursor of its own and leaves the selected image where it is
+        showCursor = playlist.newCursor();
+
+        if (warmStartSlides == 0) {
+            scheduler.start(this);
+            return;
+        }
+
+        // reading the file names of a playlist file that is still being read may wait, so this happens in the background, too
+        warmStart = new Thread(new Runnable() {
+            public void run() {
+                warmUp();
+            }
+        }, "slideshow-warm-start");
+        warmStart.setDaemon(true);
+        warmStart.start();
+    }
 
-        // save currently selected image position
-        ImageNode currentImage = images.getCursor();
+    /**
+     * Stops a running slideshow, or a slideshow whose first slides are still being decoded.
+     */
+    public void stopShow() {
+        Thread preparing;
+        synchronized (warmStartLock) {
+            preparing = warmStart;
+            warmStart = null;
+        }
+
+        if (preparing == null) {
+            scheduler.stop();
+            return;
+        }
 
-        // select the first image
-        images.moveCursorToStart();
+        preparing.interrupt();
+        this.showEnded();
+    }
+
+    /**
+     * Decodes the first slides of the show in parallel and starts the show once the slides shown first are decoded.
+     * Runs on its own thread.
+     */
+    private void warmUp() {
+        int slides = Math.min(warmStartSlides, prefetcher.getBatchLimit());
+        List<String> fileNames = new ArrayList<String>();
+        PlaylistCursor cursor = playlist.newCursor();
+        for (boolean more = cursor.moveToStart(); more && fileNames.size() < slides; more = cursor.moveRight()) {
+            fileNames.add(cursor.getFileName());
+        }
+
+        List<Future<?>> decodes = prefetcher.prefetchAll(fileNames, new Runnable() {
+            public void run() {
+                showWarmUpProgress();
+            }
+        });
+        synchronized (warmStartLock) {
+            if (warmStart != Thread.currentThread()) {     // stopped meanwhile
+                prefetcher.cancel(decodes);
+                return;
+            }
+            warmDecodes = decodes;
+        }
+        showWarmUpProgress();
+
+        // the show starts once the slides are decoded that the prefetcher would otherwise decode ahead of the first slide
+        int first = Math.min(decodes.size(), prefetcher.getLookahead() + 1);
+        try {
+            for (int i = 0; i < first; i++) {
+                try {
+                    decodes.get(i).get();
+                } catch (ExecutionException e) {
+                    // the slide is shown as a file that could not be decoded
+                } catch (CancellationException e) {
+                    // the show was stopped
+                }
+            }
+        } catch (InterruptedException e) {
+            // the show was stopped
+        }
+
+        // a show that was stopped meanwhile has ended already
+        synchronized (warmStartLock) {
+            if (warmStart != Thread.currentThread())
+                return;
+            warmStart = null;
+            scheduler.start(this);
+        }
+    }
 
-        // perform slideshow
-        for (int i=0; i<images.count();i++) {
-            this.redraw();
-            UI.sleep(2000);
-            images.moveCursorRight();
+    /**
+     * Shows in the message line how many of the slides decoded at the start of the show are decoded already.
+     */
+    private void showWarmUpProgress() {
+        List<Future<?>> decodes = warmDecodes;
+        int decoded = 0;
+        for (Future<?> decode : decodes) {
+            if (decode.isDone())
+                decoded++;
         }
+        if (!decodes.isEmpty())
+            UI.printMessage("Decoded " + decoded + " of the first " + decodes.size() + " slides");
+    }
 
-        // reenable input handlers
-        slideShowIsActive = false;
+    /**
+     * Pauses a running slideshow, or resumes it if it is paused.
+     */
+    public void togglePause() {
+        if (scheduler.isPaused())
+            scheduler.resume();
+        else 
+            scheduler.pause();
+    }
 
-        // restore currently selected image position
-        images.setCursor(currentImage);
+    /**
+     * Shows the next image of the slideshow. Called by the scheduler.
+     * 
+     * @return the time the image should be shown, or -1 after the last image
+     */
+    public long showSlide(int slideNumber) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+
+        // a playlist that is still being read waits here for the next image
+        boolean moved = slideNumber == 0 ? showCursor.moveToStart() : showCursor.moveRight();
+        if (!moved)
+            return -1;
+
+        String imageFileName = showCursor.getFileName();
+        this.redraw(imageFileName, showCursor.index());
+        if (Metrics.ENABLED)
+            Metrics.SLIDE_TRANSITION.record(start);
+
+        Long duration = slideDurations.get(imageFileName);
+        return duration != null ? duration : DEFAULT_SLIDE_DURATION;
+    }
+
+    /**
+     * Restores the viewer after the slideshow has ended. Called by the scheduler.
+     */
+    public void showEnded() {
+        // slides that were to be decoded for the show are not needed any more
+        List<Future<?>> decodes = warmDecodes;
+        warmDecodes = new ArrayList<Future<?>>();
+        prefetcher.cancel(decodes);
 
         // reinstantiate the normal viewer status screen
         this.statusScreen();
-
     }
 
     /**
      * Uses the current cursor position to display the respective image.
      */
     private void redraw() {
-        UI.clearGraphics();
+        this.redraw(playlist.getImageFileNameAtCursor(), playlist.indexOfCursor());
+    }
+
+    /**
+     * Displays an image of the playlist.
+     * 
+     * Afterwards, the neighbouring images are decoded in the background.
+     * 
+     * @param imageFileName the file name of the image, or "" if the playlist is empty
+     * @param position the position of the image in the playlist, or -1 if the playlist is empty
+     */
+    private void redraw(String imageFileName, int position) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        target.clear();
 
-        if (images.count() > 0) {
-            UI.drawImage(images.getImageFileNameAtCursor(), 10, 10, 450, 450);
+        if (position >= 0) {
+            java.awt.Image image = prefetcher.fetch(imageFileName);
+            if (image != null)
+                target.drawImage(image, 10, 10, IMAGE_SIZE, IMAGE_SIZE);
+            else 
+                target.drawImage(imageFileName, 10, 10, IMAGE_SIZE, IMAGE_SIZE);
         }
+
+        target.show();
+        if (Metrics.ENABLED)
+            Metrics.VIEWER_REDRAW.record(start);
+
+        if (position >= 0)
+            prefetcher.prefetchAround(playlist, position);
     } 
 }
@@ -0,0 +1,468 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class StreamingPlaylist is a playlist whose images are read from a playlist file on demand,
+ * so that playlists with millions of entries can be viewed without holding all their file names in memory.
+ *
+ * A playlist file is a UTF-8 text file with the file name of one image per line, as in the M3U format:
+ * blank lines and lines starting with '#' are ignored, and relative file names are relative to the directory of the playlist file.
+ *
+ * A background thread reads the file once from start to end and only remembers the byte offset of every PAGE_SIZE-th entry.
+ * Entries are read in pages of PAGE_SIZE consecutive entries; only the page of the cursor and a few recently used pages
+ * are kept, any other page is read again from its offset when it is needed. Memory use therefore grows by
+ * one offset per PAGE_SIZE entries rather than by one file name per entry.
+ *
+ * The playlist can be viewed while the file is still being read. Moving the cursor past the last entry read so far
+ * waits until the background thread has read the next entry, or has reached the end of the file.
+ * Pages are read from the file without holding the lock of the playlist, so reading a page keeps neither the background
+ * thread from publishing entries nor other threads from using the resident pages.
+ *
+ * The playlist file must not change while it is open.
+ *
+ * @version 17 October 2026
+ */
+public class StreamingPlaylist implements Playlist, Closeable {
+
+    // the number of consecutive entries that are read together
+    public static final int PAGE_SIZE = 1024;
+
+    // the number of pages that are kept in memory
+    private static final int RESIDENT_PAGES = 4;
+
+    // the number of entries the background thread reads before it makes them visible
+    private static final int PUBLISH_INTERVAL = 64;
+
+    private final Path file;
+
+    // the directory that relative file names are resolved against
+    private final Path directory;
+
+    // the byte offsets of the first entry of every page found so far
+    private long[] pageOffsets = new long[16];
+
+    // the number of entries read so far, and whether that is all of them
+    private int count;
+    private boolean complete;
+
+    // the error that ended reading the file early, or null
+    private IOException failure;
+
+    // the position of the cursor, or -1 while the playlist is empty
+    private int cursor = -1;
+
+    // the resident pages by page number, in the order of their last use
+    private final Map<Integer, String[]> pages = new LinkedHashMap<Integer, String[]>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > RESIDENT_PAGES;
+        }
+    };
+
+    // set by 'close' to stop the background thread
+    private volatile boolean closed;
+
+    /**
+     * Opens a playlist file and starts reading it in the background.
+     *
+     * @param file the playlist file
+     */
+    public StreamingPlaylist(Path file) {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        this.directory = parent != null ? parent : file.toAbsolutePath();
+
+        Thread indexer = new Thread(new Runnable() {
+            public void run() {
+                index();
+            }
+        }, "playlist-reader");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    /**
+     * Returns the playlist file.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the error that ended reading the playlist file early, or null if there was none (yet).
+     */
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    public String getImageFileNameAtCursor() {
+        int position = indexOfCursor();
+        if (position < 0)
+            return "";
+
+        String fileName = getImageFileNameAt(position);
+        return fileName != null ? fileName : "";
+    }
+
+    /**
+     * Returns the file name of the image at a position, reading its page from the file if it is not resident.
+     *
+     * @param position the position, counting from 0
+     * @return the file name, or null if the position is out of range or its page cannot be read
+     */
+    public String getImageFileNameAt(int position) {
+        int pageNumber = position / PAGE_SIZE;
+        String[] page;
+        long pageOffset;
+        synchronized (this) {
+            if (position < 0 || position >= count)
+                return null;
+
+            page = pages.get(pageNumber);
+            pageOffset = pageOffsets[pageNumber];
+        }
+
+        if (page == null) {
+            // the page is read without the lock; if two threads read it at once, the second copy replaces the first
+            page = readPage(pageOffset);
+            if (page == null)
+                return null;
+
+            synchronized (this) {
+                if (!closed)
+                    pages.put(pageNumber, page);
+            }
+        }
+
+        int offset = position % PAGE_SIZE;
+        return offset < page.length ? page[offset] : null;
+    }
+
+    public synchronized int indexOfCursor() {
+        return cursor;
+    }
+
+    /**
+     * Positions the cursor at the first image, waiting for it if none has been read yet.
+     */
+    public synchronized void moveCursorToStart() {
+        awaitEntries(1);
+        if (count > 0)
+            cursor = 0;
+    }
+
+    /**
+     * Positions the cursor at the last image read so far.
+     */
+    public synchronized void moveCursorToEnd() {
+        if (count > 0)
+            cursor = count - 1;
+    }
+
+    /**
+     * Moves the cursor to the next image, waiting for it if it has not been read yet.
+     */
+    public synchronized void moveCursorRight() {
+        awaitEntries(cursor + 2);
+        if (cursor + 1 < count)
+            cursor++;
+    }
+
+    public synchronized void moveCursorLeft() {
+        if (cursor > 0)
+            cursor--;
+    }
+
+    public synchronized void moveCursorTo(int position) {
+        if (position >= 0 && position < count)
+            cursor = position;
+    }
+
+    public PlaylistCursor newCursor() {
+        return new ReadCursor();
+    }
+
+    /**
+     * Stops reading the playlist file and releases the resident pages.
+     */
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            pages.clear();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the given number of entries has been read, or the whole file.
+     */
+    private void awaitEntries(int entries) {
+        while (count < entries && !complete && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the playlist file from start to end, run by the background thread.
+     *
+     * Remembers the offset of every page, and makes new entries visible in batches of PUBLISH_INTERVAL.
+     */
+    private void index() {
+        int entries = 0;
+        IOException error = null;
+
+        try (EntryReader reader = new EntryReader(Files.newInputStream(file), 0)) {
+            while (!closed && reader.next()) {
+                if (entries % PAGE_SIZE == 0)
+                    addPage(entries / PAGE_SIZE, reader.entryOffset());
+
+                entries++;
+                if (entries % PUBLISH_INTERVAL == 0)
+                    publish(entries);
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            failure = error;
+            complete = true;
+            publish(entries);
+        }
+    }
+
+    /**
+     * Remembers the offset of the first entry of a page.
+     */
+    private synchronized void addPage(int pageNumber, long offset) {
+        if (pageNumber == pageOffsets.length)
+            pageOffsets = Arrays.copyOf(pageOffsets, pageOffsets.length * 2);
+        pageOffsets[pageNumber] = offset;
+    }
+
+    /**
+     * Makes the entries read so far visible, and wakes up threads waiting for them.
+     */
+    private synchronized void publish(int entries) {
+        count = entries;
+        if (cursor < 0 && count > 0)
+            cursor = 0;
+        notifyAll();
+    }
+
+    /**
+     * Reads the entries of a page from the playlist file. Called without holding the lock.
+     *
+     * @param offset the byte offset of the first entry of the page
+     * @return the file names of the page, or null if the file cannot be read
+     */
+    private String[] readPage(long offset) {
+        String[] page = new String[PAGE_SIZE];
+        int entries = 0;
+
+        try (InputStream input = Files.newInputStream(file)) {
+            long skipped = 0;
+            while (skipped < offset) {
+                long step = input.skip(offset - skipped);
+                if (step <= 0)
+                    return null;
+                skipped += step;
+            }
+
+            // the page may be read before the background thread has counted all its entries, so read up to a full page
+            EntryReader reader = new EntryReader(input, offset);
+            while (entries < PAGE_SIZE && reader.next()) {
+                page[entries++] = resolve(reader.entry());
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        return entries < PAGE_SIZE ? Arrays.copyOf(page, entries) : page;
+    }
+
+    /**
+     * Returns the file name of an entry, resolving relative names against the directory of the playlist file.
+     */
+    private String resolve(String entry) {
+        try {
+            return directory.resolve(entry).toString();
+        } catch (InvalidPathException e) {
+            return entry;
+        }
+    }
+
+    /**
+     * Reads the entries of a playlist file one by one, keeping track of their byte offsets.
+     *
+     * The bytes of an entry are only decoded when 'entry' is called, so counting entries does not create strings.
+     */
+    private static class EntryReader implements Closeable {
+        private final InputStream input;
+
+        // the bytes read from the input but not consumed yet
+        private final byte[] buffer = new byte[1 << 16];
+        private int bufferPosition;
+        private int bufferLength;
+
+        // the offset of the next byte to be consumed
+        private long position;
+
+        // the current line, the current entry within it without surrounding white space, and the offset of the line
+        private byte[] line = new byte[256];
+        private int entryStart;
+        private int entryLength;
+        private long entryOffset;
+
+        /**
+         * @param input the input, positioned at the given offset
+         * @param position the offset of the next byte of the input
+         */
+        EntryReader(InputStream input, long position) {
+            this.input = input;
+            this.position = position;
+        }
+
+        /**
+         * Advances to the next entry, skipping lines that are blank or only white space, and comments.
+         *
+         * @return false at the end of the input
+         */
+        boolean next() throws IOException {
+            while (true) {
+                long start = position;
+                int lineLength = 0;
+
+                int b;
+                while ((b = read()) >= 0 && b != '\n') {
+                    if (lineLength == line.length)
+                        line = Arrays.copyOf(line, line.length * 2);
+                    line[lineLength++] = (byte) b;
+                }
+
+                // white space as removed by String.trim, which includes the '\r' of a Windows line end
+                entryStart = 0;
+                while (entryStart < lineLength && (line[entryStart] & 0xff) <= ' ')
+                    entryStart++;
+                while (lineLength > entryStart && (line[lineLength - 1] & 0xff) <= ' ')
+                    lineLength--;
+                entryLength = lineLength - entryStart;
+
+                if (entryLength > 0 && line[entryStart] != '#') {
+                    entryOffset = start;
+                    return true;
+                }
+
+                if (b < 0)
+                    return false;
+            }
+        }
+
+        /**
+         * Returns the current entry.
+         */
+        String entry() {
+            return new String(line, entryStart, entryLength, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Returns the byte offset of the current entry.
+         */
+        long entryOffset() {
+            return entryOffset;
+        }
+
+        public void close() throws IOException {
+            input.close();
+        }
+
+        /**
+         * Returns the next byte, or -1 at the end of the input.
+         */
+        private int read() throws IOException {
+            if (bufferPosition == bufferLength) {
+                bufferLength = input.read(buffer);
+                bufferPosition = 0;
+                if (bufferLength <= 0) {
+                    bufferLength = 0;
+                    return -1;
+                }
+            }
+
+            position++;
+            return buffer[bufferPosition++] & 0xff;
+        }
+    }
+
+    /**
+     * A read-only cursor that refers to a position of this playlist. Like the playlist cursor, it waits for entries that have not been read yet.
+     */
+    private class ReadCursor implements PlaylistCursor {
+
+        // the position of this cursor, or -1 if it is not positioned
+        private int position = -1;
+
+        public boolean moveToCursor() {
+            position = indexOfCursor();
+            return position >= 0;
+        }
+
+        public boolean moveToStart() {
+            synchronized (StreamingPlaylist.this) {
+                awaitEntries(1);
+                return moveTo(0);
+            }
+        }
+
+        public boolean moveTo(int newPosition) {
+            if (newPosition < 0 || newPosition >= count())
+                return false;
+
+            position = newPosition;
+            return true;
+        }
+
+        public boolean moveRight() {
+            if (position < 0)
+                return false;
+
+            synchronized (StreamingPlaylist.this) {
+                awaitEntries(position + 2);
+                return moveTo(position + 1);
+            }
+        }
+
+        public boolean moveLeft() {
+            return position > 0 && moveTo(position - 1);
+        }
+
+        public String getFileName() {
+            String fileName = position < 0 ? null : getImageFileNameAt(position);
+            return fileName != null ? fileName : "";
+        }
+
+        public int index() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.imageio.ImageIO;
+
+/**
+ * Class ThumbnailStore creates downscaled versions of images once and keeps them in a directory on disk,
+ * so that showing a thumbnail only requires decoding a small file.
+ *
+ * A thumbnail is identified by a hash of the absolute path, the modification time and the length of its source file.
+ * Changing the source file therefore changes the identity of its thumbnail. The thumbnails of a source file are kept
+ * in a subdirectory named by a hash of its path, so that the outdated thumbnails can be deleted when a new one is created.
+ *
+ * Thumbnails of many images can be created in parallel, using one thread per core.
+ *
+ * @version 17 October 2026
+ */
+public class ThumbnailStore {
+
+    // the size of the longer side of a thumbnail
+    public static final int THUMBNAIL_SIZE = 100;
+
+    // the file format of stored thumbnails
+    private static final String FORMAT = "png";
+
+    // the directory that holds the thumbnails
+    private final File directory;
+
+    // creates thumbnails in parallel
+    private final ExecutorService executor;
+
+    // statistics
+    private long createNanos;
+
+    /**
+     * Creates a thumbnail store in the default directory, 'slideshow-thumbnails' in the temporary directory.
+     */
+    public ThumbnailStore() {
+        this(new File(System.getProperty("java.io.tmpdir"), "slideshow-thumbnails"));
+    }
+
+    /**
+     * Creates a thumbnail store.
+     *
+     * @param directory the directory that holds the thumbnails; it is created if necessary
+     */
+    public ThumbnailStore(File directory) {
+        this.directory = directory;
+        directory.mkdirs();
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "thumbnail-generator");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the file name of the thumbnail of an image, creating the thumbnail if it does not exist yet.
+     *
+     * @param imageFileName the file name of the source image
+     * @return the file name of the thumbnail, or the source file name if no thumbnail could be created
+     */
+    public String thumbnailFor(String imageFileName) {
+        File source = new File(imageFileName);
+        File thumbnail = thumbnailFile(source);
+
+        if (thumbnail.isFile())
+            return thumbnail.getPath();
+
+        long start = System.nanoTime();
+        boolean created = create(source, thumbnail);
+        long elapsed = System.nanoTime() - start;
+        synchronized (this) {
+            createNanos += elapsed;
+        }
+
+        return created ? thumbnail.getPath() : imageFileName;
+    }
+
+    /**
+     * Creates the missing thumbnails of several images in parallel and waits until they are done.
+     *
+     * @param imageFileNames the file names of the source images; duplicates are created only once
+     */
+    public void prepare(Collection<String> imageFileNames) {
+        List<Future<String>> results = new ArrayList<Future<String>>();
+
+        for (final String imageFileName : new LinkedHashSet<String>(imageFileNames)) {
+            results.add(executor.submit(new Callable<String>() {
+                public String call() {
+                    return thumbnailFor(imageFileName);
+                }
+            }));
+        }
+
+        for (Future<String> result : results) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // the thumbnail is created again when it is needed
+            }
+        }
+    }
+
+    /**
+     * Returns the total time in nanoseconds spent creating thumbnails, over all threads.
+     */
+    public synchronized long getCreateNanos() {
+        return createNanos;
+    }
+
+    /**
+     * Returns the directory that holds the thumbnails.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Creates the thumbnail of a source image and deletes outdated thumbnails of it.
+     *
+     * The source image is decoded at reduced resolution, as far as that still covers the thumbnail size (see class ImageDecoder).
+     *
+     * The thumbnail is written to a temporary file first and then renamed,
+     * so that a thumbnail file is never seen half written.
+     *
+     * @return true, if the thumbnail was created
+     */
+    private boolean create(File source, File thumbnail) {
+        BufferedImage image;
+        try {
+            image = ImageDecoder.read(source, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+        } catch (IOException e) {
+            return false;
+        }
+
+        if (image == null)      // no reader for this file format
+            return false;
+
+        double scale = Math.min(1.0, (double) THUMBNAIL_SIZE / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+
+        try {
+            thumbnail.getParentFile().mkdirs();
+            File partial = File.createTempFile("thumbnail", ".part", thumbnail.getParentFile());
+            if (!ImageIO.write(scaled, FORMAT, partial) || !partial.renameTo(thumbnail)) {
+                partial.delete();
+                return thumbnail.isFile();      // another thread may have created it meanwhile
+            }
+        } catch (IOException e) {
+            return false;
+        }
+
+        deleteOutdated(thumbnail);
+        return true;
+    }
+
+    /**
+     * Deletes the thumbnails of earlier versions of the same source image, which share the directory of the current thumbnail.
+     */
+    private void deleteOutdated(File current) {
+        File[] thumbnails = current.getParentFile().listFiles();
+        if (thumbnails == null)
+            return;
+
+        for (File thumbnail : thumbnails) {
+            if (!thumbnail.equals(current) && thumbnail.getName().endsWith("." + FORMAT))
+                thumbnail.delete();
+        }
+    }
+
+    /**
+     * Returns the file a thumbnail of the current version of a source image is stored in.
+     *
+     * The directory is named by a hash of the path and holds all thumbnails of the same source file.
+     * The file is named by a hash of the path, modification time and length, which identifies the version of the source file.
+     */
+    private File thumbnailFile(File source) {
+        String path = source.getAbsolutePath();
+        String version = path + '\n' + source.lastModified() + '\n' + source.length();
+        return new File(new File(directory, hash(path)), hash(version) + "." + FORMAT);
+    }
+
+    /**
+     * Returns the SHA-1 hash of a string as hexadecimal digits.
+     */
+    private static String hash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+import ecs100.*;
+
+import java.awt.Color;
+import java.awt.Image;
+
+/**
+ * A render target that draws on the graphics pane of the UI.
+ * 
+ * @version 17 October 2026
+ */
+public class UIRenderTarget implements RenderTarget {
+
+    public void clear() {
+        UI.clearGraphics(false);
+    }
+
+    public void erase(int x, int y, int width, int height) {
+        UI.eraseRect(x, y, width, height, false);
+    }
+
+    public void fillRect(int x, int y, int width, int height, Color color) {
+        UI.setColor(color);
+        UI.fillRect(x, y, width, height, false);
+    }
+
+    public void drawImage(Image image, int x, int y, int width, int height) {
+        UI.drawImage(image, x, y, width, height, false);
+    }
+
+    public void drawImage(String fileName, int x, int y, int width, int height) {
+        UI.drawImage(fileName, x, y, width, height, false);
+    }
+
+    public void drawString(String text, int x, int y, Color color) {
+        UI.setColor(color);
+        UI.drawString(text, x, y, false);
+    }
+
+    public void show() {
+        UI.repaintGraphics();
+    }
+}